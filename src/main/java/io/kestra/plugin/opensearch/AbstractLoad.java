@@ -1,16 +1,41 @@
 package io.kestra.plugin.opensearch;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
-import org.opensearch.client.opensearch.OpenSearchClient;
-import org.opensearch.client.opensearch.core.BulkRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.opensearch.client.Cancellable;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.opensearch.client.ResponseListener;
+import org.opensearch.client.RestClient;
 import org.opensearch.client.opensearch.core.BulkResponse;
-import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.transport.rest_client.RestClientTransport;
 import org.slf4j.Logger;
 
@@ -22,14 +47,18 @@ import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.FileSerde;
+import io.kestra.plugin.opensearch.model.ErrorMode;
 
 import io.swagger.v3.oas.annotations.media.Schema;
-import jakarta.validation.constraints.NotNull;
+import jakarta.json.stream.JsonParser;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-
-import static io.kestra.core.utils.Rethrow.throwFunction;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 @SuperBuilder
 @ToString
@@ -37,14 +66,38 @@ import static io.kestra.core.utils.Rethrow.throwFunction;
 @Getter
 @NoArgsConstructor
 public abstract class AbstractLoad extends AbstractTask implements RunnableTask<AbstractLoad.Output> {
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 503);
+    private static final int DECODE_SEGMENT_LINES = 1000;
+    private static final RequestOptions GZIP_OPTIONS = RequestOptions.DEFAULT.toBuilder()
+        .addHeader("Content-Encoding", "gzip")
+        .addHeader("Accept-Encoding", "gzip")
+        .build();
+
     @Schema(
         title = "Source file in Internal Storage",
-        description = "Path to Kestra internal storage object containing line-delimited JSON or ION records."
+        description = "Path to Kestra internal storage object containing line-delimited JSON or ION records. " +
+            "Required unless `fromFiles` is set."
     )
-    @NotNull
     @PluginProperty(internalStorageURI = true, group = "main")
     private Property<String> from;
 
+    @Schema(
+        title = "Source files in Internal Storage",
+        description = "Paths of several such files, for example `{{ outputs.split.uris | values }}`, to load all of them " +
+            "through the same connection and bulk pipeline. Cannot be set together with `from`."
+    )
+    @PluginProperty(internalStorageURI = true, group = "main")
+    private Property<List<String>> fromFiles;
+
+    @Schema(
+        title = "Files read concurrently",
+        description = "When `fromFiles` lists several files, number of files read at the same time; defaults to 4. " +
+            "Operations from files read concurrently are interleaved in the bulk requests."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> fileConcurrency = Property.ofValue(4);
+
     @Schema(
         title = "Bulk chunk size",
         description = "Number of operations per bulk request; defaults to 1000."
@@ -53,78 +106,828 @@ public abstract class AbstractLoad extends AbstractTask implements RunnableTask<
     @PluginProperty(group = "execution")
     private Property<Integer> chunk = Property.ofValue(1000);
 
-    protected abstract Flux<BulkOperation> source(RunContext runContext, InputStream inputStream) throws IllegalVariableEvaluationException, IOException;
+    @Schema(
+        title = "Maximum bulk chunk size in bytes",
+        description = "Flushes a bulk request before its estimated serialized body exceeds this size; " +
+            "the request is sent as soon as either `chunk` or `maxChunkBytes` is reached. " +
+            "A single operation larger than the limit is still sent alone. Unset by default."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Long> maxChunkBytes;
+
+    @Schema(
+        title = "Adapt the chunk size to the cluster",
+        description = "When set, `chunk` is ignored. The chunk size starts at `initial` and grows by `initial` operations after each bulk request " +
+            "whose client latency and server `took` stay under `targetLatency`. It is halved after a request with rejected items (429/503) " +
+            "or a latency above the target. The chosen sizes are published as `chunk.size.*` metrics."
+    )
+    @PluginProperty(group = "execution")
+    private AdaptiveChunk adaptiveChunk;
+
+    @Schema(
+        title = "Concurrent bulk requests",
+        description = "Maximum number of bulk requests in flight at once; defaults to 1. " +
+            "With more than 1, chunks may be applied out of order, so operations on the same document across chunks are not ordered."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> concurrency = Property.ofValue(1);
+
+    @Schema(
+        title = "Partition the operations into ordered lanes",
+        description = "When set, operations are hashed by `_id` into this number of lanes; each lane sends its bulk requests " +
+            "one after the other while the lanes run in parallel, so operations on the same document are applied in input order, " +
+            "as needed to replay change streams. `concurrency` is ignored, and `shardGrouping` cannot be used. " +
+            "Operations without an id are spread over the lanes. Within a request, an item rejected and retried is still " +
+            "applied after the later items of that request. Unset by default."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> partitions;
+
+    @Schema(
+        title = "Maximum retries of a rejected bulk item",
+        description = "Items rejected with a 429 or 503 status are sent again, alone, up to this number of times; defaults to 3. " +
+            "Items failing with any other status fail the task immediately."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxItemRetries = Property.ofValue(3);
+
+    @Schema(
+        title = "Initial delay before retrying rejected bulk items",
+        description = "Doubled on each new attempt, up to `itemRetryMaxBackoff`; defaults to 1 second."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> itemRetryBackoff = Property.ofValue(Duration.ofSeconds(1));
+
+    @Schema(
+        title = "Maximum delay before retrying rejected bulk items",
+        description = "Defaults to 1 minute."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> itemRetryMaxBackoff = Property.ofValue(Duration.ofMinutes(1));
+
+    @Schema(
+        title = "Input decoding threads",
+        description = "Number of threads decoding the input; defaults to 1, decoding on the reading thread. " +
+            "Above 1, the input is cut at line boundaries into segments of whole records (whole action and source line pairs for `Bulk`) " +
+            "that are decoded concurrently, so each record must be on a single line, as written by Kestra."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> decodeThreads = Property.ofValue(1);
+
+    @Schema(
+        title = "Keep the input order when decoding in parallel",
+        description = "When false, decoded segments are chunked as soon as they are ready, which keeps every decoding thread busy " +
+            "but may send operations out of input order. Defaults to true."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Boolean> preserveOrder = Property.ofValue(true);
+
+    @Schema(
+        title = "Behavior on failed bulk items",
+        description = "`FAIL` (default) stops the load on the first item that fails for good. `CONTINUE` loads the whole input, " +
+            "and writes every failed item, with its operation, index, id, status, error and original document, " +
+            "into an ION dead-letter file exposed as the `deadLetter` output."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<ErrorMode> errorMode = Property.ofValue(ErrorMode.FAIL);
+
+    @Schema(
+        title = "Tune the target indices for a bulk ingest",
+        description = "When set, the refresh interval and replica count of the target indices are captured, relaxed during the load, " +
+            "and restored afterwards, even if the load fails. Once restored, the indices can be refreshed and force merged. " +
+            "Only indices that exist when the load starts are tuned."
+    )
+    @PluginProperty(group = "advanced")
+    private BulkIngest bulkIngest;
+
+    @Schema(
+        title = "Checkpoint the load to resume it on retry",
+        description = "When true, the number of leading records of each input file fully acknowledged by OpenSearch is saved in the " +
+            "state store, keyed by task id and file URI, every `checkpointInterval` and when the load fails. " +
+            "A retry of the task within the same execution skips these records; other executions loading the same file start over. " +
+            "The checkpoints are deleted once the load succeeds. " +
+            "Requires `preserveOrder` when decoding in parallel. Defaults to false."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Boolean> checkpoint = Property.ofValue(false);
+
+    @Schema(
+        title = "Checkpoint save interval",
+        description = "Defaults to 30 seconds."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> checkpointInterval = Property.ofValue(Duration.ofSeconds(30));
+
+    @Schema(
+        title = "Group the operations of each chunk by target shard",
+        description = "When true, the target shard of each operation is computed like OpenSearch routes documents, from its `routing` " +
+            "or `_id` and the index routing metadata read once from the cluster state. Chunks are then filled per shard, " +
+            "so each bulk request turns into a single large shard write instead of many small ones. " +
+            "Operations without an id, or for indices whose routing is unknown, are chunked together. " +
+            "Up to one chunk per shard is kept in memory. Defaults to false."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Boolean> shardGrouping = Property.ofValue(false);
+
+    @Schema(
+        title = "Deduplicate the operations of each chunk",
+        description = "When true, operations of a chunk targeting the same `_index`, `_id` and routing are collapsed before the chunk is sent: " +
+            "an `index` or `delete` operation replaces every previous operation on the document, last write wins. " +
+            "`create` and `update` operations never replace previous ones, as their result depends on them. " +
+            "The number of dropped operations is published as the `operations.deduplicated` metric. Defaults to false."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Boolean> deduplicate = Property.ofValue(false);
+
+    @Schema(
+        title = "Throttle the load",
+        description = "Caps the documents and uncompressed bytes sent per second, and can pause the load while a node write " +
+            "queue is too deep, to keep a shared cluster responsive. The time requests were held back is published as " +
+            "the `throttle.duration` metric. Unset by default."
+    )
+    @PluginProperty(group = "execution")
+    private Throttle throttle;
+
+    /**
+     * Reads and decodes the operations sequentially, on demand, adding the time spent on each to {@link LoadMetrics#decoded}.
+     */
+    protected abstract Flux<BulkEntry> source(RunContext runContext, InputStream inputStream, LoadMetrics metrics) throws IllegalVariableEvaluationException, IOException;
+
+    /**
+     * Returns the indices the operations target when they are known before reading the input, or null otherwise;
+     * used as the indices tuned by {@link #bulkIngest} when none are listed, and to read their routing up front.
+     */
+    protected List<String> ingestIndices(RunContext runContext) throws IllegalVariableEvaluationException {
+        return null;
+    }
+
+    /**
+     * Returns a decoder for segments of whole input lines, or null when the input can only be decoded sequentially
+     * by {@link #source(RunContext, InputStream, LoadMetrics)}.
+     */
+    protected SegmentDecoder segmentDecoder(RunContext runContext) throws IllegalVariableEvaluationException, IOException {
+        return null;
+    }
 
     @Override
     public Output run(RunContext runContext) throws Exception {
         Logger logger = runContext.logger();
-        URI from = new URI(runContext.render(this.from).as(String.class).orElseThrow());
+        List<URI> from = this.uris(runContext);
+
+        boolean compress = this.connection.compressRequests(runContext);
+        File deadLetterFile = runContext.render(this.errorMode).as(ErrorMode.class).orElse(ErrorMode.FAIL) == ErrorMode.CONTINUE ?
+            runContext.workingDir().createTempFile(".ion").toFile() :
+            null;
 
+        // bulk bodies are compressed here rather than by the client, to measure the bytes saved
         try (
-            RestClientTransport transport = this.connection.client(runContext);
-            InputStream inputStream = new BufferedInputStream(runContext.storage().getFile(from), FileSerde.BUFFER_SIZE)
+            RestClientTransport transport = this.connection.client(runContext, false);
+            Failures failures = new Failures(deadLetterFile == null ? null : new BufferedOutputStream(new FileOutputStream(deadLetterFile), FileSerde.BUFFER_SIZE))
         ) {
-            OpenSearchClient client = new OpenSearchClient(transport);
             AtomicLong count = new AtomicLong();
-            AtomicLong duration = new AtomicLong();
+            AtomicLong buffered = new AtomicLong();
+            AtomicLong bufferedMax = new AtomicLong();
+            Map<URI, AtomicLong> counts = new LinkedHashMap<>();
+            from.forEach(uri -> counts.put(uri, new AtomicLong()));
 
-            var chunkRendered = runContext.render(this.chunk).as(Integer.class).orElseThrow();
+            var maxChunkBytesRendered = runContext.render(this.maxChunkBytes).as(Long.class).orElse(Long.MAX_VALUE);
+            var partitionsRendered = runContext.render(this.partitions).as(Integer.class).orElse(null);
+            var concurrencyRendered = partitionsRendered != null ? partitionsRendered : runContext.render(this.concurrency).as(Integer.class).orElse(1);
+            var decodeThreadsRendered = runContext.render(this.decodeThreads).as(Integer.class).orElse(1);
+            var fileConcurrencyRendered = runContext.render(this.fileConcurrency).as(Integer.class).orElse(1);
+            var preserveOrderRendered = runContext.render(this.preserveOrder).as(Boolean.class).orElse(true);
+            var segmentDecoder = decodeThreadsRendered > 1 ? this.segmentDecoder(runContext) : null;
 
-            Flux<BulkResponse> flowable = this.source(runContext, inputStream)
-                .doOnNext(docWriteRequest ->
-                {
-                    count.incrementAndGet();
-                })
-                .buffer(chunkRendered, chunkRendered)
-                .map(throwFunction(indexRequests ->
-                {
-                    var bulkRequest = new BulkRequest.Builder();
-                    bulkRequest.operations(indexRequests);
+            var shardGroupingRendered = runContext.render(this.shardGrouping).as(Boolean.class).orElse(false);
+            if (partitionsRendered != null) {
+                if (partitionsRendered < 1) {
+                    throw new IllegalArgumentException("`partitions` must be at least 1, got " + partitionsRendered);
+                }
 
-                    return client.bulk(bulkRequest.build());
-                }))
-                .doOnNext(bulkItemResponse ->
-                {
-                    duration.addAndGet(bulkItemResponse.took());
+                if (shardGroupingRendered) {
+                    throw new IllegalArgumentException("`partitions` cannot be used with `shardGrouping`");
+                }
 
-                    if (bulkItemResponse.errors()) {
-                        throw new RuntimeException("Indexer failed bulk:\n " + logError(bulkItemResponse));
+                if (segmentDecoder != null && !preserveOrderRendered) {
+                    throw new IllegalArgumentException("`partitions` requires `preserveOrder` when `decodeThreads` is above 1");
+                }
+            }
+
+            Map<URI, Checkpoint> checkpoints = new LinkedHashMap<>();
+            if (runContext.render(this.checkpoint).as(Boolean.class).orElse(false)) {
+                if (segmentDecoder != null && !preserveOrderRendered) {
+                    throw new IllegalArgumentException("`checkpoint` requires `preserveOrder` when `decodeThreads` is above 1");
+                }
+
+                for (URI uri : from) {
+                    Checkpoint checkpoint = Checkpoint.load(runContext, this.getId(), uri);
+                    checkpoints.put(uri, checkpoint);
+
+                    if (checkpoint.skipped() > 0) {
+                        logger.info("Resuming '{}' from checkpoint, skipping {} records already loaded", uri, checkpoint.skipped());
                     }
-                });
+                }
+            }
 
-            // metrics & finalize
-            Long requestCount = flowable.count().block();
-            runContext.metric(Counter.of("requests.count", requestCount));
-            runContext.metric(Counter.of("records", count.get()));
-            runContext.metric(Timer.of("requests.duration", Duration.ofNanos(duration.get())));
+            BulkContext context = new BulkContext(
+                logger,
+                transport.restClient(),
+                transport.jsonpMapper(),
+                this.chunkSizer(runContext),
+                runContext.render(this.maxItemRetries).as(Integer.class).orElse(0),
+                runContext.render(this.itemRetryBackoff).as(Duration.class).orElseThrow(),
+                runContext.render(this.itemRetryMaxBackoff).as(Duration.class).orElseThrow(),
+                compress,
+                failures,
+                new LoadMetrics(concurrencyRendered),
+                this.loadThrottle(runContext, transport.restClient())
+            );
+
+            Scheduler decoders = segmentDecoder != null ? Schedulers.newParallel("opensearch-decode", decodeThreadsRendered) : null;
+
+            // each file is read on a blocking-friendly worker, so demand coming back from the http client threads
+            // never reads the input files on them
+            Flux<BulkEntry> operations = Flux.fromIterable(from)
+                .flatMap(
+                    uri ->
+                    {
+                        Checkpoint checkpoint = checkpoints.get(uri);
+                        long skipped = checkpoint == null ? 0 : checkpoint.skipped();
+
+                        return this.read(runContext, uri, segmentDecoder, decoders, decodeThreadsRendered, preserveOrderRendered, context.metrics())
+                            .skip(skipped)
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .doOnNext(entry ->
+                            {
+                                long position = skipped + counts.get(uri).getAndIncrement();
+                                if (checkpoint != null) {
+                                    entry.track(checkpoint, position);
+                                }
+
+                                count.incrementAndGet();
+                                bufferedMax.accumulateAndGet(buffered.incrementAndGet(), Math::max);
+                            });
+                    },
+                    Math.max(1, fileConcurrencyRendered)
+                );
+
+            boolean deduplicateRendered = runContext.render(this.deduplicate).as(Boolean.class).orElse(false);
+            AtomicLong deduplicated = new AtomicLong();
+
+            List<String> ingestIndices = this.bulkIngest == null ? null : this.bulkIngestIndices(runContext);
+
+            long checkpointIntervalMillis = runContext.render(this.checkpointInterval).as(Duration.class).orElseThrow().toMillis();
+            Disposable checkpointSaver = checkpoints.isEmpty() ? null : Schedulers.boundedElastic().schedulePeriodically(
+                () -> this.saveCheckpoints(logger, checkpoints.values()),
+                checkpointIntervalMillis,
+                checkpointIntervalMillis,
+                TimeUnit.MILLISECONDS
+            );
+
+            Function<List<BulkEntry>, Mono<BulkResponse>> send = entries -> Mono
+                .fromCallable(() -> deduplicateRendered ? deduplicate(entries, deduplicated) : entries)
+                .flatMap(sent -> this.bulk(context, sent, 1))
+                .doOnSuccess(response -> Checkpoint.acknowledge(entries))
+                .doFinally(signal -> buffered.addAndGet(-entries.size()));
+
+            Flux<BulkResponse> responses;
+            if (partitionsRendered != null) {
+                responses = this.partition(operations, partitionsRendered)
+                    .flatMap(
+                        lane -> lane
+                            .bufferUntil(new ChunkBoundary(context.sizer(), maxChunkBytesRendered), true)
+                            .concatMap(send, 1),
+                        partitionsRendered
+                    );
+            } else if (shardGroupingRendered) {
+                // the routing of the indices known up front is read now, before any request is in flight
+                ShardRouter router = new ShardRouter(logger, transport.restClient());
+                router.preload(Optional.ofNullable(this.ingestIndices(runContext)).orElse(List.of()));
+
+                responses = this.groupByShard(operations, new ShardChunks(router, context.sizer(), maxChunkBytesRendered))
+                    .flatMap(send, concurrencyRendered);
+            } else {
+                responses = operations
+                    .bufferUntil(new ChunkBoundary(context.sizer(), maxChunkBytesRendered), true)
+                    .flatMap(send, concurrencyRendered);
+            }
+
+            try (IndexSettings ignored = ingestIndices == null ? null : this.relaxSettings(runContext, transport.restClient(), ingestIndices)) {
+                responses.blockLast();
+            } finally {
+                // metrics are also reported on failure, to know how far the load went
+                if (decoders != null) {
+                    decoders.dispose();
+                }
+
+                if (checkpointSaver != null) {
+                    checkpointSaver.dispose();
+                    this.saveCheckpoints(logger, checkpoints.values());
+                }
+
+                context.throttle().close();
+
+                context.metrics().report(runContext, count.get(), compress);
+                runContext.metric(Counter.of("records", count.get()));
+                runContext.metric(Counter.of("files", from.size()));
+                if (deduplicateRendered) {
+                    runContext.metric(Counter.of("operations.deduplicated", deduplicated.get()));
+                }
+
+                runContext.metric(Counter.of("records.skipped", checkpoints.values().stream().mapToLong(Checkpoint::skipped).sum()));
+                runContext.metric(Counter.of("operations.buffered.max", bufferedMax.get()));
+                if (this.throttle != null) {
+                    runContext.metric(Timer.of("throttle.duration", context.throttle().waited()));
+                }
+
+                if (context.sizer().isAdaptive()) {
+                    runContext.metric(Counter.of("chunk.size.min", context.sizer().getSmallest()));
+                    runContext.metric(Counter.of("chunk.size.max", context.sizer().getLargest()));
+                    runContext.metric(Counter.of("chunk.size.final", context.sizer().size()));
+                }
+            }
 
             logger.info(
-                "Successfully send {} requests for {} records in {}",
-                requestCount,
+                "Successfully send {} requests for {} records from {} file(s) in {}",
+                context.metrics().requests(),
                 count.get(),
-                Duration.ofNanos(duration.get())
+                from.size(),
+                context.metrics().took()
             );
 
-            return Output.builder()
+            if (ingestIndices != null) {
+                this.afterIngest(runContext, transport.restClient(), ingestIndices);
+            }
+
+            // the whole input is loaded, a retry must start over
+            for (Checkpoint checkpoint : checkpoints.values()) {
+                checkpoint.delete();
+            }
+
+            Map<String, Long> files = new LinkedHashMap<>();
+            counts.forEach((uri, fileCount) -> files.put(uri.toString(), fileCount.get()));
+
+            Output.OutputBuilder output = Output.builder()
                 .size(count.get())
-                .build();
+                .files(files)
+                .failed(context.metrics().failed());
+
+            if (context.metrics().failed() > 0) {
+                logger.warn("{}", failures.summary(context.metrics().failed()));
+
+                failures.close();
+                output.deadLetter(runContext.storage().putFile(deadLetterFile));
+            }
+
+            return output.build();
         }
     }
 
-    private String logError(BulkResponse bulkResponse) {
-        StringBuilder builder = new StringBuilder();
-        bulkResponse.items().forEach(
-            responseItem ->
+    private List<String> bulkIngestIndices(RunContext runContext) throws IllegalVariableEvaluationException {
+        List<String> indices = this.bulkIngest.getIndices() == null ?
+            this.ingestIndices(runContext) :
+            runContext.render(this.bulkIngest.getIndices()).asList(String.class);
+
+        if (indices == null || indices.isEmpty()) {
+            throw new IllegalArgumentException("`bulkIngest.indices` must be set to know which indices to tune");
+        }
+
+        return indices;
+    }
+
+    private IndexSettings relaxSettings(RunContext runContext, RestClient client, List<String> indices) throws IllegalVariableEvaluationException, IOException {
+        return IndexSettings.relax(
+            runContext.logger(),
+            client,
+            indices,
+            Map.of(
+                "index.refresh_interval", runContext.render(this.bulkIngest.getRefreshInterval()).as(String.class).orElseThrow(),
+                "index.number_of_replicas", String.valueOf(runContext.render(this.bulkIngest.getNumberOfReplicas()).as(Integer.class).orElseThrow())
+            )
+        );
+    }
+
+    /**
+     * Refreshes and force merges the indices once their settings are restored; both requests wait for completion.
+     */
+    private void afterIngest(RunContext runContext, RestClient client, List<String> indices) throws IllegalVariableEvaluationException, IOException {
+        String path = "/" + String.join(",", indices);
+
+        if (runContext.render(this.bulkIngest.getRefresh()).as(Boolean.class).orElse(true)) {
+            org.opensearch.client.Request refresh = new org.opensearch.client.Request("POST", path + "/_refresh");
+            refresh.addParameter("ignore_unavailable", "true");
+            client.performRequest(refresh);
+        }
+
+        if (runContext.render(this.bulkIngest.getForceMerge()).as(Boolean.class).orElse(false)) {
+            org.opensearch.client.Request forceMerge = new org.opensearch.client.Request("POST", path + "/_forcemerge");
+            forceMerge.addParameter("ignore_unavailable", "true");
+            runContext.render(this.bulkIngest.getMaxNumSegments()).as(Integer.class)
+                .ifPresent(segments -> forceMerge.addParameter("max_num_segments", String.valueOf(segments)));
+
+            long start = System.nanoTime();
+            client.performRequest(forceMerge);
+            runContext.metric(Timer.of("forcemerge.duration", Duration.ofNanos(System.nanoTime() - start)));
+        }
+    }
+
+    private void saveCheckpoints(Logger logger, Collection<Checkpoint> checkpoints) {
+        for (Checkpoint checkpoint : checkpoints) {
+            try {
+                checkpoint.save();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unable to save the load checkpoint, a retry may load records again", e);
+            }
+        }
+    }
+
+    private List<URI> uris(RunContext runContext) throws IllegalVariableEvaluationException, URISyntaxException {
+        Optional<String> from = runContext.render(this.from).as(String.class);
+        List<String> fromFiles = this.fromFiles == null ? null : runContext.render(this.fromFiles).asList(String.class);
+
+        if (from.isPresent() == (fromFiles != null)) {
+            throw new IllegalArgumentException("Exactly one of `from` or `fromFiles` must be set");
+        }
+
+        if (from.isPresent()) {
+            return List.of(new URI(from.get()));
+        }
+
+        if (fromFiles.isEmpty()) {
+            throw new IllegalArgumentException("`fromFiles` must list at least one file");
+        }
+
+        List<URI> uris = new ArrayList<>();
+        for (String uri : fromFiles) {
+            uris.add(new URI(uri));
+        }
+
+        return uris;
+    }
+
+    /**
+     * Reads one input file, closing it once its operations are consumed or the load fails.
+     */
+    private Flux<BulkEntry> read(RunContext runContext, URI uri, SegmentDecoder segmentDecoder, Scheduler decoders, int threads, boolean preserveOrder, LoadMetrics metrics) {
+        return Flux.using(
+            () -> new BufferedInputStream(runContext.storage().getFile(uri), FileSerde.BUFFER_SIZE),
+            inputStream ->
+            {
+                try {
+                    return segmentDecoder == null ?
+                        this.source(runContext, inputStream, metrics) :
+                        this.decode(new LineReader(inputStream), segmentDecoder, decoders, threads, preserveOrder, metrics);
+                } catch (IllegalVariableEvaluationException | IOException e) {
+                    return Flux.error(e);
+                }
+            },
+            inputStream ->
             {
-                if (responseItem.error() != null) {
-                    builder
-                        .append(responseItem.index()).append(": ")
-                        .append(responseItem.status()).append(" - ")
-                        .append(responseItem.error().reason()).append('\n');
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
             }
         );
-        return builder.toString();
+    }
+
+    /**
+     * Reads whole operations sequentially, and decodes segments of them on the decoding threads.
+     */
+    private Flux<BulkEntry> decode(LineReader reader, SegmentDecoder decoder, Scheduler decoders, int threads, boolean preserveOrder, LoadMetrics metrics) {
+        Flux<List<byte[][]>> segments = Flux.generate(sink ->
+        {
+            try {
+                List<byte[][]> segment = new ArrayList<>();
+                int lines = 0;
+                byte[] line;
+
+                while (lines < DECODE_SEGMENT_LINES && (line = reader.readLine()) != null) {
+                    if (line.length == 0) {
+                        continue;
+                    }
+
+                    byte[][] operation = new byte[decoder.lines(line)][];
+                    operation[0] = line;
+                    for (int i = 1; i < operation.length; i++) {
+                        operation[i] = reader.readSourceLine();
+                    }
+
+                    segment.add(operation);
+                    lines += operation.length;
+                }
+
+                if (segment.isEmpty()) {
+                    sink.complete();
+                } else {
+                    sink.next(segment);
+                }
+            } catch (IOException e) {
+                sink.error(e);
+            }
+        });
+
+        Function<List<byte[][]>, Mono<List<BulkEntry>>> decode = segment -> Mono
+            .fromCallable(() ->
+            {
+                long start = System.nanoTime();
+                List<BulkEntry> entries = decoder.decode(segment);
+                metrics.decoded(System.nanoTime() - start);
+
+                return entries;
+            })
+            .subscribeOn(decoders);
+
+        return (preserveOrder ? segments.flatMapSequential(decode, threads) : segments.flatMap(decode, threads))
+            .flatMapIterable(entries -> entries);
+    }
+
+    /**
+     * Drops the operations replaced by a later index or delete on the same document, keeping the order of the others.
+     */
+    private static List<BulkEntry> deduplicate(List<BulkEntry> entries, AtomicLong deduplicated) throws IOException {
+        Set<BulkEntry.Target> replaced = new HashSet<>();
+        List<BulkEntry> kept = new ArrayList<>(entries.size());
+
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            BulkEntry entry = entries.get(i);
+            BulkEntry.Target target = entry.target();
+
+            if (target.id() == null) {
+                kept.add(entry);
+                continue;
+            }
+
+            // the type is not part of the document key
+            BulkEntry.Target document = new BulkEntry.Target(null, target.index(), target.id(), target.routing());
+
+            if (replaced.contains(document)) {
+                deduplicated.incrementAndGet();
+                continue;
+            }
+
+            kept.add(entry);
+
+            if ("index".equals(target.type()) || "delete".equals(target.type())) {
+                replaced.add(document);
+            }
+        }
+
+        Collections.reverse(kept);
+
+        return kept;
+    }
+
+    /**
+     * Groups the operations on a worker thread: demand coming back from the http client threads may deliver them there,
+     * and the routing of an index seen for the first time is read with a blocking request.
+     */
+    private Flux<List<BulkEntry>> groupByShard(Flux<BulkEntry> operations, ShardChunks shardChunks) {
+        return operations
+            .publishOn(Schedulers.boundedElastic())
+            .flatMapIterable(entry ->
+            {
+                try {
+                    return shardChunks.add(entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })
+            .concatWith(Flux.defer(() -> Flux.fromIterable(shardChunks.flush())));
+    }
+
+    private LoadThrottle loadThrottle(RunContext runContext, RestClient client) throws IllegalVariableEvaluationException {
+        if (this.throttle == null) {
+            return new LoadThrottle(runContext.logger(), client, null, null, null, null);
+        }
+
+        return new LoadThrottle(
+            runContext.logger(),
+            client,
+            runContext.render(this.throttle.getDocumentsPerSecond()).as(Integer.class).orElse(null),
+            runContext.render(this.throttle.getBytesPerSecond()).as(Long.class).orElse(null),
+            runContext.render(this.throttle.getMaxWriteQueue()).as(Integer.class).orElse(null),
+            runContext.render(this.throttle.getWriteQueueInterval()).as(Duration.class).orElseThrow()
+        );
+    }
+
+    /**
+     * Splits the operations into lanes by hash of their id, so that all the operations on a document are in the same lane.
+     */
+    private Flux<GroupedFlux<Integer, BulkEntry>> partition(Flux<BulkEntry> operations, int partitions) {
+        AtomicLong unkeyed = new AtomicLong();
+
+        return operations
+            .groupBy(entry ->
+            {
+                String id;
+                try {
+                    id = entry.target().id();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                return id == null ?
+                    (int) (unkeyed.getAndIncrement() % partitions) :
+                    Math.floorMod(ShardRouter.hash(id), partitions);
+            });
+    }
+
+    private ChunkSizer chunkSizer(RunContext runContext) throws IllegalVariableEvaluationException {
+        if (this.adaptiveChunk == null) {
+            return new ChunkSizer(runContext.render(this.chunk).as(Integer.class).orElseThrow());
+        }
+
+        return new ChunkSizer(
+            runContext.render(this.adaptiveChunk.getInitial()).as(Integer.class).orElseThrow(),
+            runContext.render(this.adaptiveChunk.getMin()).as(Integer.class).orElseThrow(),
+            runContext.render(this.adaptiveChunk.getMax()).as(Integer.class).orElseThrow(),
+            runContext.render(this.adaptiveChunk.getTargetLatency()).as(Duration.class).orElseThrow()
+        );
+    }
+
+    /**
+     * Sends the entries once the throttle allows it, then sends again, after a backoff, only the items rejected with a
+     * retryable status, or the whole chunk when the request itself was rejected.
+     */
+    private Mono<BulkResponse> bulk(BulkContext context, List<BulkEntry> entries, int attempt) {
+        return context.throttle().acquire(entries).then(Mono.defer(() ->
+        {
+            long start = System.nanoTime();
+            int[] rejectedStatus = new int[1];
+
+            return this.send(context, entries)
+                .map(Optional::of)
+                .onErrorResume(
+                    e -> e instanceof ResponseException responseException &&
+                        RETRYABLE_STATUS.contains(responseException.getResponse().getStatusLine().getStatusCode()) &&
+                        attempt <= context.maxRetries(),
+                    e ->
+                    {
+                        rejectedStatus[0] = ((ResponseException) e).getResponse().getStatusLine().getStatusCode();
+                        return Mono.just(Optional.<BulkResponse>empty());
+                    }
+                )
+                .flatMap(sent ->
+                {
+                    Duration latency = Duration.ofNanos(System.nanoTime() - start);
+
+                    if (sent.isEmpty()) {
+                        context.metrics().responded(latency, 0);
+                        context.metrics().retried(rejectedStatus[0], entries.size());
+                        context.sizer().onResponse(latency, 0, true);
+
+                        return this.retry(context, entries, attempt);
+                    }
+
+                    BulkResponse response = sent.get();
+                    context.metrics().responded(latency, response.took());
+
+                    if (!response.errors()) {
+                        context.sizer().onResponse(latency, response.took(), false);
+
+                        return Mono.just(response);
+                    }
+
+                    List<BulkEntry> retryable = new ArrayList<>();
+                    Map<Integer, Integer> retryableStatus = new HashMap<>();
+                    int failed = 0;
+
+                    for (int i = 0; i < response.items().size(); i++) {
+                        BulkResponseItem item = response.items().get(i);
+
+                        if (item.error() == null) {
+                            continue;
+                        }
+
+                        if (RETRYABLE_STATUS.contains(item.status()) && attempt <= context.maxRetries()) {
+                            retryable.add(entries.get(i));
+                            retryableStatus.merge(item.status(), 1, Integer::sum);
+                        } else {
+                            failed++;
+                            context.metrics().failed(item.status());
+
+                            try {
+                                context.failures().add(item, entries.get(i));
+                            } catch (IOException e) {
+                                return Mono.error(e);
+                            }
+                        }
+                    }
+
+                    context.sizer().onResponse(latency, response.took(), !retryable.isEmpty());
+
+                    if (failed > 0) {
+                        if (!context.failures().isDeadLettering()) {
+                            return Mono.error(new RuntimeException(context.failures().summary(context.metrics().failed())));
+                        }
+                    }
+
+                    retryableStatus.forEach((status, items) -> context.metrics().retried(status, items));
+
+                    return retryable.isEmpty() ? Mono.just(response) : this.retry(context, retryable, attempt);
+                });
+        }));
+    }
+
+    private Mono<BulkResponse> retry(BulkContext context, List<BulkEntry> entries, int attempt) {
+        Duration backoff = context.backoff(attempt);
+        context.logger().warn(
+            "{} bulk items rejected, retrying them in {} (attempt {}/{})",
+            entries.size(),
+            backoff,
+            attempt,
+            context.maxRetries()
+        );
+
+        return Mono.delay(backoff).then(this.bulk(context, entries, attempt + 1));
+    }
+
+    /**
+     * Sends the entries as they are serialized through the low-level client, and only parses the bulk response.
+     */
+    private Mono<BulkResponse> send(BulkContext context, List<BulkEntry> entries) {
+        return Mono.create(sink ->
+        {
+            org.opensearch.client.Request request = new org.opensearch.client.Request("POST", "/_bulk");
+
+            try {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                for (BulkEntry entry : entries) {
+                    entry.writeTo(body);
+                }
+
+                if (context.compress()) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.size() / 4);
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                        body.writeTo(gzip);
+                    }
+
+                    request.setEntity(new ByteArrayEntity(compressed.toByteArray(), ContentType.APPLICATION_JSON));
+                    request.setOptions(GZIP_OPTIONS);
+                    context.metrics().sent(body.size(), compressed.size());
+                } else {
+                    request.setEntity(new ByteArrayEntity(body.toByteArray(), ContentType.APPLICATION_JSON));
+                    context.metrics().sent(body.size(), 0);
+                }
+            } catch (IOException e) {
+                sink.error(e);
+                return;
+            }
+
+            Cancellable cancellable = context.client().performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    context.metrics().received();
+
+                    try (
+                        InputStream content = response.getEntity().getContent();
+                        JsonParser parser = context.mapper().jsonProvider().createParser(content)
+                    ) {
+                        sink.success(BulkResponse._DESERIALIZER.deserialize(parser, context.mapper()));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    context.metrics().received();
+                    sink.error(exception);
+                }
+            });
+
+            sink.onCancel(cancellable::cancel);
+        });
+    }
+
+    /**
+     * Decodes segments of whole input lines, possibly on several threads at once.
+     */
+    protected interface SegmentDecoder {
+        /**
+         * Returns the number of lines, this one included, of the operation starting with this line.
+         */
+        default int lines(byte[] firstLine) throws IOException {
+            return 1;
+        }
+
+        /**
+         * Decodes operations, each given as its lines, into bulk entries in the same order.
+         */
+        List<BulkEntry> decode(List<byte[][]> operations) throws IOException;
     }
 
     @Builder
@@ -134,5 +937,22 @@ public abstract class AbstractLoad extends AbstractTask implements RunnableTask<
             title = "Number of records sent"
         )
         private Long size;
+
+        @Schema(
+            title = "Number of records sent per source file"
+        )
+        private Map<String, Long> files;
+
+        @Schema(
+            title = "Number of items that failed",
+            description = "Items rejected by OpenSearch for good, after the retries."
+        )
+        private Long failed;
+
+        @Schema(
+            title = "URI of the dead-letter file",
+            description = "ION file of the failed items, only set with the `CONTINUE` error mode when some items failed."
+        )
+        private URI deadLetter;
     }
 }
@@ -11,6 +11,7 @@ import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.transport.OpenSearchTransport;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.PluginProperty;
@@ -78,6 +79,19 @@ public abstract class AbstractSearch extends AbstractTask {
         return request;
     }
 
+    /**
+     * Returns the request payload as a JSON tree, to be sent as it is through the low level client.
+     */
+    protected ObjectNode requestBody() throws IOException {
+        if (this.request instanceof String requestStr) {
+            return (ObjectNode) MAPPER.readTree(requestStr);
+        } else if (this.request instanceof Map requestMap) {
+            return MAPPER.valueToTree(requestMap);
+        } else {
+            throw new IllegalArgumentException("The `request` property must be a String or an Object");
+        }
+    }
+
     // Use the trick found here: https://forum.opensearch.org/t/how-to-create-index-using-json-file/11137
     private SearchRequest parseQuery(OpenSearchTransport transport, String query) throws IOException {
         try (Reader reader = new StringReader(query)) {
@@ -0,0 +1,49 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Duration;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+public class AdaptiveChunk {
+    @Schema(
+        title = "Initial chunk size",
+        description = "Also the number of operations added after each fast request; defaults to 100."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> initial = Property.ofValue(100);
+
+    @Schema(
+        title = "Minimum chunk size",
+        description = "Defaults to 10."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> min = Property.ofValue(10);
+
+    @Schema(
+        title = "Maximum chunk size",
+        description = "Defaults to 10000."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> max = Property.ofValue(10000);
+
+    @Schema(
+        title = "Target bulk request latency",
+        description = "Above this client latency or server `took`, the chunk size is halved; defaults to 1 second."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> targetLatency = Property.ofValue(Duration.ofSeconds(1));
+}
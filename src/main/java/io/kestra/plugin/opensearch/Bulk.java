@@ -4,7 +4,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import org.opensearch.client.opensearch.core.bulk.BulkOperation;
@@ -14,16 +19,23 @@ import org.opensearch.client.opensearch.core.bulk.IndexOperation;
 import org.opensearch.client.opensearch.core.bulk.UpdateOperation;
 
 import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.JacksonMapper;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -31,6 +43,7 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SynchronousSink;
 
 import static io.kestra.core.utils.Rethrow.throwConsumer;
 
@@ -65,94 +78,299 @@ import static io.kestra.core.utils.Rethrow.throwConsumer;
                     from: "{{ inputs.file }}"
                     # `inputs.file` must contain alternating action and source lines as expected by the Bulk API.
                 """
+        ),
+        @Example(
+            full = true,
+            title = "Replay a JSON Bulk API file without parsing the documents.",
+            code = """
+                id: opensearch_bulk_passthrough
+                namespace: company.team
+
+                inputs:
+                  - id: file
+                    type: FILE
+
+                tasks:
+                  - id: bulk_load
+                    type: io.kestra.plugin.opensearch.Bulk
+                    connection:
+                      hosts:
+                        - "http://localhost:9200"
+                    from: "{{ inputs.file }}"
+                    passthrough: true
+                    maxChunkBytes: 10485760
+                """
         )
     }
 )
 public class Bulk extends AbstractLoad implements RunnableTask<Bulk.Output> {
     private static final ObjectMapper OBJECT_MAPPER = JacksonMapper.ofJson();
+    private static final JsonFactory ION_FACTORY = JacksonMapper.ofIon().getFactory();
+
+    @Schema(
+        title = "Send the file lines as they are",
+        description = "When true, the action and source lines are copied byte for byte into the bulk request bodies, " +
+            "without parsing the documents; only the action keys are read to keep each action with its source line. " +
+            "None of the rewrites of the default mode apply: an `update` is not turned into an upsert, and its line is the " +
+            "update body (`doc`, `doc_as_upsert`, `script`...) rather than the document itself. " +
+            "The file must be a valid JSON (NDJSON) bulk file. Defaults to false."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Boolean> passthrough = Property.ofValue(false);
 
     @Override
-    protected Flux<BulkOperation> source(RunContext runContext, InputStream inputStream) throws IOException {
+    protected Flux<BulkEntry> source(RunContext runContext, InputStream inputStream, LoadMetrics metrics) throws IllegalVariableEvaluationException, IOException {
+        // lines are only read on demand, so a slow cluster never makes the whole file pile up in memory
+        if (runContext.render(this.passthrough).as(Boolean.class).orElse(false)) {
+            return Flux
+                .generate(this.rawReader(new LineReader(inputStream), metrics));
+        }
+
         return Flux
-            .create(this.fileReader(new BufferedReader(new InputStreamReader(inputStream))), FluxSink.OverflowStrategy.BUFFER);
+            .generate(this.operationReader(new BufferedReader(new InputStreamReader(inputStream)), metrics));
     }
 
-    @SuppressWarnings("unchecked")
+    Consumer<SynchronousSink<BulkEntry>> rawReader(LineReader input, LoadMetrics metrics) {
+        return s ->
+        {
+            try {
+                long start = System.nanoTime();
+                byte[] action;
+                do {
+                    action = input.readLine();
+                } while (action != null && action.length == 0);
+
+                if (action == null) {
+                    s.complete();
+                    return;
+                }
+
+                String type = actionType(action);
+                BulkEntry entry = rawEntry(type, action, "delete".equals(type) ? null : input.readSourceLine());
+                metrics.decoded(System.nanoTime() - start);
+                s.next(entry);
+            } catch (IOException e) {
+                s.error(e);
+            }
+        };
+    }
+
+    /**
+     * Pushes every operation of the file into the sink at once; the task itself reads the file on demand.
+     */
     public Consumer<FluxSink<BulkOperation>> fileReader(BufferedReader input) throws IOException {
         return throwConsumer(s ->
         {
             String row;
             Boolean isJson = null;
+            AtomicLong line = new AtomicLong();
 
             while ((row = input.readLine()) != null) {
+                line.incrementAndGet();
+
                 // validate if it's json or ion
                 if (isJson == null) {
-                    try {
-                        OBJECT_MAPPER.readTree(row);
-                        isJson = true;
-                    } catch (JacksonException e) {
-                        isJson = false;
-                    }
+                    isJson = isJson(row);
                 }
 
-                Map<String, Object> data;
-                if (isJson) {
-                    data = JacksonMapper.toMap(row);
-                } else {
-                    data = JacksonMapper.ofIon().readValue(row, JacksonMapper.MAP_TYPE_REFERENCE);
+                s.next(toOperation(isJson, row, sourceLine(input, line)));
+            }
+
+            s.complete();
+        });
+    }
+
+    private Consumer<SynchronousSink<BulkEntry>> operationReader(BufferedReader input, LoadMetrics metrics) {
+        AtomicReference<Boolean> isJson = new AtomicReference<>();
+        AtomicLong line = new AtomicLong();
+
+        return s ->
+        {
+            try {
+                long start = System.nanoTime();
+                String row = input.readLine();
+                if (row == null) {
+                    s.complete();
+                    return;
                 }
 
-                Map.Entry<String, Object> operation = data.entrySet().iterator().next();
-                Map<String, Object> value = (Map<String, Object>) operation.getValue();
-
-                var bulkOperation = new BulkOperation.Builder();
-
-                switch (operation.getKey()) {
-                    case "index":
-                        var indexOperation = new IndexOperation.Builder<>()
-                            .id((String) value.get("_id"))
-                            .index((String) value.get("_index"))
-                            .document(parseline(isJson, input.readLine()));
-                        bulkOperation.index(indexOperation.build());
-                        break;
-                    case "create":
-                        var createOperation = new CreateOperation.Builder<>()
-                            .id((String) value.get("_id"))
-                            .index((String) value.get("_index"))
-                            .ifPrimaryTerm(0L) //FIXME opType
-                            .document(parseline(isJson, input.readLine()));
-                        bulkOperation.create(createOperation.build());
-                        break;
-                    case "update":
-                        var updateOperation = new UpdateOperation.Builder<>()
-                            .id((String) value.get("_id"))
-                            .index((String) value.get("_index"))
-                            .docAsUpsert(true)
-                            .document(parseline(isJson, input.readLine()));
-                        bulkOperation.update(updateOperation.build());
-                        break;
-                    case "delete":
-                        var deleteOperation = new DeleteOperation.Builder()
-                            .id((String) value.get("_id"))
-                            .index((String) value.get("_index"));
-                        bulkOperation.delete(deleteOperation.build());
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid bulk request type on '" + row + "'");
+                line.incrementAndGet();
+
+                // validate if it's json or ion
+                if (isJson.get() == null) {
+                    isJson.set(isJson(row));
                 }
 
-                s.next(bulkOperation.build());
+                BulkEntry entry = BulkEntry.of(toOperation(isJson.get(), row, sourceLine(input, line)));
+                metrics.decoded(System.nanoTime() - start);
+                s.next(entry);
+            } catch (IOException e) {
+                s.error(e);
             }
+        };
+    }
 
-            s.complete();
-        });
+    @Override
+    protected SegmentDecoder segmentDecoder(RunContext runContext) throws IllegalVariableEvaluationException {
+        boolean passthrough = runContext.render(this.passthrough).as(Boolean.class).orElse(false);
+
+        return new SegmentDecoder() {
+            @Override
+            public int lines(byte[] firstLine) throws IOException {
+                return "delete".equals(actionKey(firstLine)) ? 1 : 2;
+            }
+
+            @Override
+            public List<BulkEntry> decode(List<byte[][]> operations) throws IOException {
+                List<BulkEntry> entries = new ArrayList<>(operations.size());
+                Boolean isJson = null;
+
+                for (byte[][] operation : operations) {
+                    if (passthrough) {
+                        entries.add(rawEntry(actionType(operation[0]), operation[0], operation.length > 1 ? operation[1] : null));
+                        continue;
+                    }
+
+                    String row = new String(operation[0], StandardCharsets.UTF_8);
+                    if (isJson == null) {
+                        isJson = isJson(row);
+                    }
+
+                    entries.add(BulkEntry.of(toOperation(
+                        isJson,
+                        row,
+                        () -> operation.length > 1 ? new String(operation[1], StandardCharsets.UTF_8) : null
+                    )));
+                }
+
+                return entries;
+            }
+        };
+    }
+
+    private static BulkEntry rawEntry(String type, byte[] action, byte[] source) {
+        return switch (type) {
+            case "index", "create", "update" -> new BulkEntry(action, source);
+            case "delete" -> new BulkEntry(action, null);
+            default -> throw new IllegalArgumentException("Invalid bulk request type on '" + new String(action, StandardCharsets.UTF_8) + "'");
+        };
     }
 
-    private static Map<?, ?> parseline(Boolean isJson, String line) throws JsonProcessingException {
+    private static boolean isJson(String row) {
+        try {
+            OBJECT_MAPPER.readTree(row);
+            return true;
+        } catch (JacksonException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BulkOperation toOperation(boolean isJson, String row, LineSupplier source) throws IOException {
+        Map<String, Object> data;
+        if (isJson) {
+            data = JacksonMapper.toMap(row);
+        } else {
+            data = JacksonMapper.ofIon().readValue(row, JacksonMapper.MAP_TYPE_REFERENCE);
+        }
+
+        Map.Entry<String, Object> operation = data.entrySet().iterator().next();
+        Map<String, Object> value = (Map<String, Object>) operation.getValue();
+
+        var bulkOperation = new BulkOperation.Builder();
+
+        switch (operation.getKey()) {
+            case "index":
+                var indexOperation = new IndexOperation.Builder<>()
+                    .id((String) value.get("_id"))
+                    .index((String) value.get("_index"))
+                    .document(parseline(isJson, source.get()));
+                bulkOperation.index(indexOperation.build());
+                break;
+            case "create":
+                var createOperation = new CreateOperation.Builder<>()
+                    .id((String) value.get("_id"))
+                    .index((String) value.get("_index"))
+                    .ifPrimaryTerm(0L) //FIXME opType
+                    .document(parseline(isJson, source.get()));
+                bulkOperation.create(createOperation.build());
+                break;
+            case "update":
+                var updateOperation = new UpdateOperation.Builder<>()
+                    .id((String) value.get("_id"))
+                    .index((String) value.get("_index"))
+                    .docAsUpsert(true)
+                    .document(parseline(isJson, source.get()));
+                bulkOperation.update(updateOperation.build());
+                break;
+            case "delete":
+                var deleteOperation = new DeleteOperation.Builder()
+                    .id((String) value.get("_id"))
+                    .index((String) value.get("_index"));
+                bulkOperation.delete(deleteOperation.build());
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid bulk request type on '" + row + "'");
+        }
+
+        return bulkOperation.build();
+    }
+
+    /**
+     * Reads the first key of an action line, either JSON or Ion, without decoding the rest of the line.
+     */
+    private static String actionKey(byte[] action) throws IOException {
+        try (JsonParser parser = ION_FACTORY.createParser(action)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                throw new IllegalArgumentException("Invalid bulk action line '" + new String(action, StandardCharsets.UTF_8) + "'");
+            }
+
+            return parser.currentName();
+        }
+    }
+
+    private static String actionType(byte[] action) throws IOException {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(action)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                throw new IllegalArgumentException("Invalid bulk action line '" + new String(action, StandardCharsets.UTF_8) + "'");
+            }
+
+            return parser.currentName();
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Passthrough mode requires a JSON bulk file, invalid action line '" + new String(action, StandardCharsets.UTF_8) + "'", e);
+        }
+    }
+
+    private static Map<?, ?> parseline(boolean isJson, String line) throws JsonProcessingException {
         if (isJson) {
             return OBJECT_MAPPER.readValue(line, JacksonMapper.MAP_TYPE_REFERENCE);
         } else {
             return JacksonMapper.ofIon().readValue(line, JacksonMapper.MAP_TYPE_REFERENCE);
         }
     }
+
+    /**
+     * Reads the source line of the action line just read, counting it.
+     */
+    private static LineSupplier sourceLine(BufferedReader input, AtomicLong line) {
+        long actionLine = line.get();
+
+        return () ->
+        {
+            String source = input.readLine();
+            if (source == null) {
+                throw LineReader.missingSource(actionLine);
+            }
+
+            line.incrementAndGet();
+
+            return source;
+        };
+    }
+
+    @FunctionalInterface
+    private interface LineSupplier {
+        String get() throws IOException;
+    }
 }
@@ -0,0 +1,30 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Duration;
+
+import org.opensearch.client.RestClient;
+import org.opensearch.client.json.JsonpMapper;
+import org.slf4j.Logger;
+
+/**
+ * What the bulk requests of a load share: the client, the chunk sizing, the retry policy and the accounting.
+ */
+record BulkContext(
+    Logger logger,
+    RestClient client,
+    JsonpMapper mapper,
+    ChunkSizer sizer,
+    int maxRetries,
+    Duration retryBackoff,
+    Duration retryMaxBackoff,
+    boolean compress,
+    Failures failures,
+    LoadMetrics metrics,
+    LoadThrottle throttle
+) {
+    Duration backoff(int attempt) {
+        Duration backoff = this.retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 30));
+
+        return backoff.compareTo(this.retryMaxBackoff) > 0 ? this.retryMaxBackoff : backoff;
+    }
+}
@@ -0,0 +1,132 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.NdJsonpSerializable;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+import jakarta.json.stream.JsonGenerator;
+import lombok.Getter;
+
+/**
+ * A bulk operation already serialized as its ndjson action line and optional document line, so a chunk body is
+ * only a concatenation of bytes, and its size is known before it is sent.
+ */
+@Getter
+final class BulkEntry {
+    private static final JsonpMapper MAPPER = new JacksonJsonpMapper(JacksonMapper.ofJson(false));
+    private static final JsonFactory FACTORY = JacksonMapper.ofJson(false).getFactory();
+
+    private final byte[] action;
+    private final byte[] document;
+
+    // set when the load is checkpointed: position of the record in its input file
+    private Checkpoint checkpoint;
+    private long position;
+
+    BulkEntry(byte[] action, byte[] document) {
+        this.action = action;
+        this.document = document;
+    }
+
+    static BulkEntry of(BulkOperation operation) {
+        List<byte[]> lines = new ArrayList<>(2);
+        lines(operation, lines);
+
+        return new BulkEntry(lines.getFirst(), lines.size() > 1 ? lines.get(1) : null);
+    }
+
+    private static void lines(NdJsonpSerializable value, List<byte[]> lines) {
+        Iterator<?> values = value._serializables();
+
+        while (values.hasNext()) {
+            Object item = values.next();
+
+            if (item instanceof NdJsonpSerializable nested && item != value) {
+                lines(nested, lines);
+            } else {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                try (JsonGenerator generator = MAPPER.jsonProvider().createGenerator(output)) {
+                    MAPPER.serialize(item, generator);
+                }
+
+                lines.add(output.toByteArray());
+            }
+        }
+    }
+
+    void track(Checkpoint checkpoint, long position) {
+        this.checkpoint = checkpoint;
+        this.position = position;
+    }
+
+    /**
+     * Parses the action line for its type and target document; fields are null when absent.
+     */
+    Target target() throws IOException {
+        String type = null;
+        String index = null;
+        String id = null;
+        String routing = null;
+
+        try (JsonParser parser = FACTORY.createParser(this.action)) {
+            // {"<type>": {"_index": ..., "_id": ..., "routing": ...}}
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                return new Target(null, null, null, null);
+            }
+
+            type = parser.currentName();
+
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+
+                    if (parser.nextToken().isStructStart()) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    switch (name) {
+                        case "_index" -> index = parser.getValueAsString();
+                        case "_id" -> id = parser.getValueAsString();
+                        case "routing", "_routing" -> routing = parser.getValueAsString();
+                        default -> {
+                        }
+                    }
+                }
+            }
+        }
+
+        return new Target(type, index, id, routing);
+    }
+
+    long size() {
+        return this.action.length + 1 + (this.document == null ? 0 : this.document.length + 1);
+    }
+
+    void writeTo(OutputStream output) throws IOException {
+        output.write(this.action);
+        output.write('\n');
+
+        if (this.document != null) {
+            output.write(this.document);
+            output.write('\n');
+        }
+    }
+
+    record Target(String type, String index, String id, String routing) {
+    }
+}
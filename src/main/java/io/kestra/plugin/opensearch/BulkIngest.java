@@ -0,0 +1,63 @@
+package io.kestra.plugin.opensearch;
+
+import java.util.List;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+public class BulkIngest {
+    @Schema(
+        title = "Indices to tune",
+        description = "Index names or patterns; defaults to the `index` of the `Load` task."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<List<String>> indices;
+
+    @Schema(
+        title = "Refresh interval during the load",
+        description = "Defaults to `-1`, disabling periodic refreshes."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<String> refreshInterval = Property.ofValue("-1");
+
+    @Schema(
+        title = "Number of replicas during the load",
+        description = "Defaults to 0; replicas are rebuilt from the primaries once the setting is restored."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Integer> numberOfReplicas = Property.ofValue(0);
+
+    @Schema(
+        title = "Refresh the indices after the load",
+        description = "Defaults to true."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> refresh = Property.ofValue(true);
+
+    @Schema(
+        title = "Force merge the indices after the load",
+        description = "Defaults to false; the task waits for the merge to complete."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> forceMerge = Property.ofValue(false);
+
+    @Schema(
+        title = "Number of segments to force merge to",
+        description = "Defaults to the server behavior, merging only when needed."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Integer> maxNumSegments;
+}
@@ -0,0 +1,167 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import io.kestra.core.exceptions.ResourceExpiredException;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Number of leading records of an input file fully acknowledged by OpenSearch, persisted in the state store so that
+ * a retry of the load can skip them.
+ * <p>
+ * The checkpoint records the execution it was saved by, and only a retry within that same execution resumes from it:
+ * another execution loading the same file, such as a namespace file or a reused output, starts over.
+ * <p>
+ * Chunks complete in any order, so acknowledged ranges of records beyond the first gap are kept until the gap is
+ * acknowledged too; only the contiguous prefix is ever persisted.
+ */
+final class Checkpoint {
+    private static final String STATE_NAME = "opensearch-load-checkpoint";
+
+    private final RunContext runContext;
+    private final String taskId;
+    private final String executionId;
+    private final URI uri;
+    private final long skipped;
+    private final TreeMap<Long, Long> acknowledged = new TreeMap<>();
+    private final Object saving = new Object();
+    private long watermark;
+    private long saved;
+    private boolean deleted;
+
+    private Checkpoint(RunContext runContext, String taskId, String executionId, URI uri, long skipped) {
+        this.runContext = runContext;
+        this.taskId = taskId;
+        this.executionId = executionId;
+        this.uri = uri;
+        this.skipped = skipped;
+        this.watermark = skipped;
+        this.saved = skipped;
+    }
+
+    static Checkpoint load(RunContext runContext, String taskId, URI uri) throws IOException {
+        String executionId = executionId(runContext);
+        long records = 0;
+
+        try (InputStream state = runContext.stateStore().getState(STATE_NAME, taskId, key(uri))) {
+            Map<String, Object> value = JacksonMapper.ofJson().readValue(state, JacksonMapper.MAP_TYPE_REFERENCE);
+
+            if (uri.toString().equals(value.get("uri")) && Objects.equals(executionId, value.get("execution"))) {
+                records = ((Number) value.get("records")).longValue();
+            }
+        } catch (FileNotFoundException | ResourceExpiredException e) {
+            // no checkpoint, the file is loaded from its first record
+        }
+
+        return new Checkpoint(runContext, taskId, executionId, uri, records);
+    }
+
+    /**
+     * Acknowledges the records of the entries, as ranges of consecutive positions: a single one per file for a plain
+     * chunk, several when chunks are grouped by shard.
+     */
+    static void acknowledge(List<BulkEntry> entries) {
+        Map<Checkpoint, List<Long>> positions = new IdentityHashMap<>();
+
+        for (BulkEntry entry : entries) {
+            if (entry.getCheckpoint() != null) {
+                positions.computeIfAbsent(entry.getCheckpoint(), c -> new ArrayList<>()).add(entry.getPosition());
+            }
+        }
+
+        positions.forEach((checkpoint, list) ->
+        {
+            list.sort(null);
+
+            long start = list.getFirst();
+            long end = start + 1;
+            for (int i = 1; i < list.size(); i++) {
+                if (list.get(i) != end) {
+                    checkpoint.acknowledge(start, end);
+                    start = list.get(i);
+                }
+                end = list.get(i) + 1;
+            }
+
+            checkpoint.acknowledge(start, end);
+        });
+    }
+
+    /**
+     * Number of leading records already acknowledged by a previous attempt, to skip.
+     */
+    long skipped() {
+        return this.skipped;
+    }
+
+    synchronized long watermark() {
+        return this.watermark;
+    }
+
+    private synchronized void acknowledge(long start, long end) {
+        this.acknowledged.put(start, end);
+
+        Long next;
+        while ((next = this.acknowledged.remove(this.watermark)) != null) {
+            this.watermark = next;
+        }
+    }
+
+    /**
+     * Persists the watermark; the periodic save and the final save or delete may run at once, so they are serialized,
+     * and nothing is saved once the checkpoint is deleted.
+     */
+    void save() throws IOException {
+        synchronized (this.saving) {
+            long records = this.watermark();
+            if (this.deleted || records == this.saved) {
+                return;
+            }
+
+            Map<String, Object> value = new HashMap<>();
+            value.put("uri", this.uri.toString());
+            value.put("execution", this.executionId);
+            value.put("records", records);
+
+            this.runContext.stateStore().putState(STATE_NAME, this.taskId, key(this.uri), JacksonMapper.ofJson().writeValueAsBytes(value));
+            this.saved = records;
+        }
+    }
+
+    void delete() throws IOException {
+        synchronized (this.saving) {
+            this.deleted = true;
+            this.runContext.stateStore().deleteState(STATE_NAME, this.taskId, key(this.uri));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String executionId(RunContext runContext) {
+        Map<String, Object> execution = (Map<String, Object>) runContext.getVariables().get("execution");
+
+        return execution == null ? null : (String) execution.get("id");
+    }
+
+    private static String key(URI uri) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(uri.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
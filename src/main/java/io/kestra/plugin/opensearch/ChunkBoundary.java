@@ -0,0 +1,36 @@
+package io.kestra.plugin.opensearch;
+
+import java.util.function.Predicate;
+
+/**
+ * Cuts the operation stream before the operation that would make the current chunk exceed either the operation
+ * count or the byte size limit.
+ */
+final class ChunkBoundary implements Predicate<BulkEntry> {
+    private final ChunkSizer sizer;
+    private final long maxBytes;
+
+    private int operations;
+    private long bytes;
+
+    ChunkBoundary(ChunkSizer sizer, long maxBytes) {
+        this.sizer = sizer;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean test(BulkEntry entry) {
+        long size = entry.size();
+        boolean cut = this.operations > 0 && (this.operations >= this.sizer.size() || this.bytes + size > this.maxBytes);
+
+        if (cut) {
+            this.operations = 0;
+            this.bytes = 0;
+        }
+
+        this.operations++;
+        this.bytes += size;
+
+        return cut;
+    }
+}
@@ -0,0 +1,61 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Duration;
+
+import lombok.Getter;
+
+/**
+ * Chooses the number of operations per chunk: either fixed, or adapted with an additive increase while requests
+ * stay under the target latency and a multiplicative decrease on rejections or latency spikes.
+ */
+final class ChunkSizer {
+    private final int min;
+    private final int max;
+    private final int step;
+    private final Duration targetLatency;
+
+    private volatile int size;
+
+    @Getter
+    private int smallest;
+
+    @Getter
+    private int largest;
+
+    ChunkSizer(int size) {
+        this(size, size, size, null);
+    }
+
+    ChunkSizer(int initial, int min, int max, Duration targetLatency) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.step = Math.max(1, initial);
+        this.targetLatency = targetLatency;
+        this.size = Math.min(this.max, Math.max(this.min, initial));
+        this.smallest = this.size;
+        this.largest = this.size;
+    }
+
+    boolean isAdaptive() {
+        return this.targetLatency != null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    synchronized void onResponse(Duration latency, long took, boolean rejected) {
+        if (!this.isAdaptive()) {
+            return;
+        }
+
+        if (rejected || latency.compareTo(this.targetLatency) > 0 || took > this.targetLatency.toMillis()) {
+            this.size = Math.max(this.min, this.size / 2);
+        } else {
+            this.size = Math.min(this.max, this.size + this.step);
+        }
+
+        this.smallest = Math.min(this.smallest, this.size);
+        this.largest = Math.max(this.largest, this.size);
+    }
+}
@@ -0,0 +1,94 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+
+import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Aggregates failed items by status and error type to report them in a capped message, and writes them into the
+ * dead-letter file when there is one.
+ */
+final class Failures implements Closeable {
+    private static final int MAX_ERROR_REASONS = 10;
+    private static final int MAX_ERROR_REASON_LENGTH = 500;
+
+    private final OutputStream output;
+    private final Map<String, Reason> reasons = new LinkedHashMap<>();
+
+    Failures(OutputStream output) {
+        this.output = output;
+    }
+
+    boolean isDeadLettering() {
+        return this.output != null;
+    }
+
+    synchronized void add(BulkResponseItem item, BulkEntry entry) throws IOException {
+        String key = item.status() + " " + item.error().type();
+        this.reasons.computeIfAbsent(key, k -> new Reason(item.index(), item.error().reason())).count++;
+
+        if (this.output == null) {
+            return;
+        }
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("operation", item.operationType().jsonValue());
+        row.put("index", item.index());
+        row.put("id", item.id());
+        row.put("status", item.status());
+        row.put("type", item.error().type());
+        row.put("reason", item.error().reason());
+        row.put("document", entry.getDocument() == null ? null : JacksonMapper.ofJson().readValue(entry.getDocument(), JacksonMapper.MAP_TYPE_REFERENCE));
+
+        FileSerde.write(this.output, row);
+    }
+
+    synchronized String summary(long failed) {
+        StringBuilder builder = new StringBuilder("Indexer failed bulk: ")
+            .append(failed).append(" item(s) failed");
+
+        this.reasons.entrySet()
+            .stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Reason> entry) -> entry.getValue().count).reversed())
+            .limit(MAX_ERROR_REASONS)
+            .forEach(entry -> builder
+                .append("\n - ").append(entry.getKey())
+                .append(" (").append(entry.getValue().count).append(" item(s)), e.g. ")
+                .append(entry.getValue().index).append(": ")
+                .append(StringUtils.abbreviate(entry.getValue().reason, MAX_ERROR_REASON_LENGTH))
+            );
+
+        if (this.reasons.size() > MAX_ERROR_REASONS) {
+            builder.append("\n - and ").append(this.reasons.size() - MAX_ERROR_REASONS).append(" other error type(s)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.output != null) {
+            this.output.close();
+        }
+    }
+
+    private static class Reason {
+        private final String index;
+        private final String reason;
+        private long count;
+
+        Reason(String index, String reason) {
+            this.index = index;
+            this.reason = reason;
+        }
+    }
+}
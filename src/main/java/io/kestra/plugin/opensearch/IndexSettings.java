@@ -0,0 +1,128 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Index settings relaxed for the duration of a bulk ingest, and restored to their captured values on close.
+ */
+final class IndexSettings implements AutoCloseable {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+
+    private final Logger logger;
+    private final RestClient client;
+    private final Map<String, Map<String, String>> original;
+
+    private IndexSettings(Logger logger, RestClient client, Map<String, Map<String, String>> original) {
+        this.logger = logger;
+        this.client = client;
+        this.original = original;
+    }
+
+    /**
+     * Captures the current values of the given settings on the existing indices matching the patterns, then applies
+     * the new values to them. A setting that is not set on an index is captured as null, which resets it on restore.
+     */
+    static IndexSettings relax(Logger logger, RestClient client, List<String> indices, Map<String, String> settings) throws IOException {
+        org.opensearch.client.Request get = new org.opensearch.client.Request("GET", "/" + String.join(",", indices) + "/_settings/" + String.join(",", settings.keySet()));
+        get.addParameter("flat_settings", "true");
+        get.addParameter("ignore_unavailable", "true");
+        get.addParameter("allow_no_indices", "true");
+
+        JsonNode current = read(client.performRequest(get));
+        Map<String, Map<String, String>> original = new LinkedHashMap<>();
+
+        for (Iterator<Map.Entry<String, JsonNode>> it = current.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> index = it.next();
+            JsonNode values = index.getValue().path("settings");
+
+            Map<String, String> captured = new LinkedHashMap<>();
+            settings.keySet().forEach(key -> captured.put(key, values.hasNonNull(key) ? values.get(key).asText() : null));
+            original.put(index.getKey(), captured);
+        }
+
+        if (original.isEmpty()) {
+            logger.warn("No existing index matches {}, bulk ingest settings are not applied", indices);
+        }
+
+        IndexSettings indexSettings = new IndexSettings(logger, client, original);
+
+        for (String index : original.keySet()) {
+            // from here on, any failure restores what was already changed
+            try {
+                put(client, index, settings);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    indexSettings.close();
+                } catch (IOException restore) {
+                    e.addSuppressed(restore);
+                }
+
+                throw e;
+            }
+
+            logger.info("Relaxed settings of index '{}' for bulk ingest: {}, previously {}", index, settings, original.get(index));
+        }
+
+        return indexSettings;
+    }
+
+    /**
+     * Restores the captured settings on every index, even if some of them fail.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+
+        for (Map.Entry<String, Map<String, String>> index : this.original.entrySet()) {
+            try {
+                put(this.client, index.getKey(), index.getValue());
+                this.logger.info("Restored settings of index '{}': {}", index.getKey(), index.getValue());
+            } catch (IOException | RuntimeException e) {
+                this.logger.error("Unable to restore settings {} of index '{}'", index.getValue(), index.getKey(), e);
+
+                if (failure == null) {
+                    failure = new IOException("Unable to restore the settings of index '" + index.getKey() + "'", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void put(RestClient client, String index, Map<String, String> settings) throws IOException {
+        org.opensearch.client.Request put = new org.opensearch.client.Request("PUT", "/" + index + "/_settings");
+        // a tree node keeps null values, which reset settings that were not set
+        ObjectNode body = MAPPER.createObjectNode();
+        settings.forEach(body::put);
+        put.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+
+        client.performRequest(put);
+    }
+
+    private static JsonNode read(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent()) {
+            return MAPPER.readTree(content);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits an input stream on line feeds and returns each line as raw bytes, without decoding them.
+ */
+final class LineReader {
+    private final InputStream input;
+    private final byte[] buffer;
+
+    private int position;
+    private int limit;
+    private long line;
+
+    LineReader(InputStream input) {
+        this(input, 64 * 1024);
+    }
+
+    LineReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Returns the next line without its line terminator, or null at the end of the input.
+     */
+    byte[] readLine() throws IOException {
+        ByteArrayOutputStream overflow = null;
+
+        while (true) {
+            if (this.position >= this.limit) {
+                this.limit = this.input.read(this.buffer);
+                this.position = 0;
+
+                if (this.limit <= 0) {
+                    this.limit = 0;
+
+                    if (overflow == null || overflow.size() == 0) {
+                        return null;
+                    }
+
+                    this.line++;
+
+                    return trim(overflow.toByteArray());
+                }
+            }
+
+            for (int i = this.position; i < this.limit; i++) {
+                if (this.buffer[i] == '\n') {
+                    byte[] line;
+
+                    if (overflow == null) {
+                        line = Arrays.copyOfRange(this.buffer, this.position, i);
+                    } else {
+                        overflow.write(this.buffer, this.position, i - this.position);
+                        line = overflow.toByteArray();
+                    }
+
+                    this.position = i + 1;
+                    this.line++;
+
+                    return trim(line);
+                }
+            }
+
+            if (overflow == null) {
+                overflow = new ByteArrayOutputStream();
+            }
+
+            overflow.write(this.buffer, this.position, this.limit - this.position);
+            this.position = this.limit;
+        }
+    }
+
+    /**
+     * Returns the source line of the action line just read, failing when the input ends before it, since the action
+     * would otherwise be sent without its document.
+     */
+    byte[] readSourceLine() throws IOException {
+        long action = this.line;
+        byte[] source = this.readLine();
+
+        if (source == null) {
+            throw missingSource(action);
+        }
+
+        return source;
+    }
+
+    static IllegalArgumentException missingSource(long actionLine) {
+        return new IllegalArgumentException("Bulk action at line " + actionLine + " has no source line");
+    }
+
+    /**
+     * Joins the lines of the operations back into a line feed separated buffer.
+     */
+    static byte[] join(List<byte[][]> operations) {
+        int size = 0;
+        for (byte[][] operation : operations) {
+            for (byte[] line : operation) {
+                size += (line == null ? 0 : line.length) + 1;
+            }
+        }
+
+        byte[] joined = new byte[size];
+        int position = 0;
+        for (byte[][] operation : operations) {
+            for (byte[] line : operation) {
+                if (line != null) {
+                    System.arraycopy(line, 0, joined, position, line.length);
+                    position += line.length;
+                }
+
+                joined[position++] = '\n';
+            }
+        }
+
+        return joined;
+    }
+
+    private static byte[] trim(byte[] line) {
+        if (line.length > 0 && line[line.length - 1] == '\r') {
+            return Arrays.copyOf(line, line.length - 1);
+        }
+
+        return line;
+    }
+}
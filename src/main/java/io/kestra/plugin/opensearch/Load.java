@@ -2,10 +2,12 @@ package io.kestra.plugin.opensearch;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
-import org.opensearch.client.opensearch.core.bulk.BulkOperation;
-import org.opensearch.client.opensearch.core.bulk.IndexOperation;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 
 import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.Example;
@@ -14,7 +16,7 @@ import io.kestra.core.models.annotations.PluginProperty;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
-import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.plugin.opensearch.model.OpType;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -23,8 +25,6 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 import reactor.core.publisher.Flux;
 
-import static io.kestra.core.utils.Rethrow.throwFunction;
-
 @SuperBuilder
 @ToString
 @EqualsAndHashCode
@@ -55,13 +55,40 @@ import static io.kestra.core.utils.Rethrow.throwFunction;
                     from: "{{ inputs.file }}"
                     index: "my_index"
                 """
+        ),
+        @Example(
+            full = true,
+            title = "Apply partial updates, creating the documents that do not exist yet.",
+            code = """
+                id: opensearch_load_upsert
+                namespace: company.team
+
+                inputs:
+                  - id: file
+                    type: FILE
+
+                tasks:
+                  - id: load
+                    type: io.kestra.plugin.opensearch.Load
+                    connection:
+                      hosts:
+                        - "http://localhost:9200"
+                    from: "{{ inputs.file }}"
+                    index: "customers"
+                    idKey: "customer_id"
+                    opType: UPDATE
+                """
         )
     }
 )
 public class Load extends AbstractLoad implements RunnableTask<Load.Output> {
+    private static final JsonFactory ION_FACTORY = JacksonMapper.ofIon().getFactory();
 
     @Schema(
-        title = "Target OpenSearch index"
+        title = "Target OpenSearch index",
+        description = "Rendered once, then may reference the fields of each record with `${record.<field>}` placeholders, " +
+            "e.g. `logs-${record.date | yyyy.MM.dd}` for time-based indices. Placeholders are not Pebble expressions: they only " +
+            "read top-level fields, with an optional date pattern after `|` applied to ISO 8601 dates or epoch milliseconds."
     )
     @NotNull
     @PluginProperty(group = "main")
@@ -69,11 +96,30 @@ public class Load extends AbstractLoad implements RunnableTask<Load.Output> {
 
     @Schema(
         title = "Bulk operation type",
-        description = "Indexing op type; INDEX/CREATE supported, others rejected by client."
+        description = "`INDEX` (default) and `CREATE` write each record as a document. `UPDATE` partially updates the document " +
+            "with the record fields, or calls `scriptId` with them as params. `DELETE` deletes the document. " +
+            "`UPDATE` and `DELETE` require a document id from `idKey` or `idExpression`."
     )
     @PluginProperty(group = "advanced")
     private Property<OpType> opType;
 
+    @Schema(
+        title = "Create missing documents on update",
+        description = "With `UPDATE`, creates the document from the record when it does not exist (`doc_as_upsert`, " +
+            "or `upsert` with a script). Defaults to true."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> docAsUpsert = Property.ofValue(true);
+
+    @Schema(
+        title = "Stored script for updates",
+        description = "With `UPDATE`, id of a stored script run on each document instead of a partial update; the record fields " +
+            "are passed as the script `params`."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<String> scriptId;
+
     @Schema(
         title = "Field to use as document id",
         description = "If set, uses this field value as `_id`; field is removed when `removeIdKey` is true."
@@ -81,6 +127,14 @@ public class Load extends AbstractLoad implements RunnableTask<Load.Output> {
     @PluginProperty(group = "connection")
     private Property<String> idKey;
 
+    @Schema(
+        title = "Per-record document id",
+        description = "Rendered once, then evaluated against each record, e.g. `${record.customer}-${record.order}` for a composite id. " +
+            "Uses the same `${record.<field>}` placeholders as `index`. Takes precedence over `idKey`, which can still be set to remove its field."
+    )
+    @PluginProperty(group = "connection")
+    private Property<String> idExpression;
+
     @Schema(
         title = "Remove idKey from document",
         description = "Defaults to true; keep the id field in the document by setting to false."
@@ -89,39 +143,85 @@ public class Load extends AbstractLoad implements RunnableTask<Load.Output> {
     @PluginProperty(group = "connection")
     private Property<Boolean> removeIdKey = Property.ofValue(true);
 
-    @SuppressWarnings("unchecked")
     @Override
-    protected Flux<BulkOperation> source(RunContext runContext, InputStream inputStream) throws IllegalVariableEvaluationException, IOException {
-        return FileSerde.readAll(inputStream)
-            .map(throwFunction(o ->
-            {
-                Map<String, ?> values = (Map<String, ?>) o;
+    protected Flux<BulkEntry> source(RunContext runContext, InputStream inputStream, LoadMetrics metrics) throws IllegalVariableEvaluationException, IOException {
+        RecordTranscoder transcoder = this.transcoder(runContext);
 
-                var indexRequest = new IndexOperation.Builder<Map<String, ?>>();
-                if (this.index != null) {
-                    indexRequest.index(runContext.render(this.getIndex()).as(String.class).orElseThrow());
+        // the parser is closed on completion, error and cancellation alike
+        return Flux.generate(
+            () -> ION_FACTORY.createParser(inputStream),
+            (parser, sink) ->
+            {
+                try {
+                    long start = System.nanoTime();
+
+                    if (parser.nextToken() == null) {
+                        sink.complete();
+                    } else {
+                        BulkEntry entry = transcoder.transcode(parser);
+                        metrics.decoded(System.nanoTime() - start);
+                        sink.next(entry);
+                    }
+                } catch (IOException e) {
+                    sink.error(e);
                 }
 
-                //FIXME
-                //                if (this.opType != null) {
-                //                    indexRequest.opType(this.opType.to());
-                //                }
+                return parser;
+            },
+            parser ->
+            {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        );
+    }
 
-                if (this.idKey != null) {
-                    String idKey = runContext.render(this.idKey).as(String.class).orElseThrow();
+    @Override
+    protected SegmentDecoder segmentDecoder(RunContext runContext) throws IllegalVariableEvaluationException, IOException {
+        RecordTranscoder transcoder = this.transcoder(runContext);
 
-                    indexRequest.id(values.get(idKey).toString());
+        return operations ->
+        {
+            List<BulkEntry> entries = new ArrayList<>(operations.size());
 
-                    if (Boolean.TRUE.equals(runContext.render(removeIdKey).as(Boolean.class).orElseThrow())) {
-                        values.remove(idKey);
-                    }
+            try (JsonParser parser = ION_FACTORY.createParser(LineReader.join(operations))) {
+                while (parser.nextToken() != null) {
+                    entries.add(transcoder.transcode(parser));
                 }
+            }
+
+            return entries;
+        };
+    }
 
-                indexRequest.document(values);
+    @Override
+    protected List<String> ingestIndices(RunContext runContext) throws IllegalVariableEvaluationException {
+        // the indices of a per-record index are only known once the records are read
+        return runContext.render(this.index).as(String.class)
+            .filter(index -> RecordExpression.compile(index).fields().isEmpty())
+            .map(List::of)
+            .orElse(null);
+    }
 
-                var bulkOperation = new BulkOperation.Builder();
-                bulkOperation.index(indexRequest.build());
-                return bulkOperation.build();
-            }));
+    private RecordTranscoder transcoder(RunContext runContext) throws IllegalVariableEvaluationException, IOException {
+        // everything is rendered or compiled once, only the record placeholders are evaluated for each record
+        String index = runContext.render(this.index).as(String.class).orElseThrow();
+        RecordExpression indexExpression = RecordExpression.compile(index);
+        boolean perRecord = !indexExpression.fields().isEmpty();
+        RecordExpression idExpression = runContext.render(this.idExpression).as(String.class).map(RecordExpression::compile).orElse(null);
+
+        return RecordTranscoder.builder()
+            .index(perRecord ? null : index)
+            .indexExpression(perRecord ? indexExpression : null)
+            .idKey(runContext.render(this.idKey).as(String.class).orElse(null))
+            .idExpression(idExpression)
+            .removeIdKey(runContext.render(this.removeIdKey).as(Boolean.class).orElse(true))
+            .opType(runContext.render(this.opType).as(OpType.class).orElse(OpType.INDEX))
+            .docAsUpsert(runContext.render(this.docAsUpsert).as(Boolean.class).orElse(true))
+            .scriptId(runContext.render(this.scriptId).as(String.class).orElse(null))
+            .build();
     }
 }
@@ -0,0 +1,190 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.runners.RunContext;
+
+/**
+ * Counters of a load, updated from the reading, decoding and http client threads, and reported once at the end.
+ * <p>
+ * Besides volumes and latencies, it splits the load duration in two: the time all request slots were busy, waiting
+ * on the cluster, and the time at least one slot was free, waiting on the input to be read and decoded.
+ * <p>
+ * Request latencies are kept in a log-linear histogram of nanoseconds: each power of two is split in 16 linear
+ * buckets, so its size does not grow with the number of requests and a percentile is within 1/16 of the exact value.
+ */
+final class LoadMetrics {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final int concurrency;
+    private final long start = System.nanoTime();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong took = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final Map<Integer, AtomicLong> retriedByStatus = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> failedByStatus = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final long[] latencies = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long latencyCount;
+    private long latencyMax;
+    private int inFlight;
+    private long lastChange = this.start;
+    private long clusterWaitNanos;
+    private long inputWaitNanos;
+
+    LoadMetrics(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    long requests() {
+        return this.requests.get();
+    }
+
+    long failed() {
+        return this.failed.get();
+    }
+
+    /**
+     * Sum of the server side `took` of the bulk requests.
+     */
+    Duration took() {
+        return Duration.ofMillis(this.took.get());
+    }
+
+    void sent(long bytes, long compressedBytes) {
+        this.requests.incrementAndGet();
+        this.bytes.addAndGet(bytes);
+        this.compressedBytes.addAndGet(compressedBytes);
+        this.inFlight(1);
+    }
+
+    void received() {
+        this.inFlight(-1);
+    }
+
+    synchronized void responded(Duration latency, long took) {
+        this.took.addAndGet(took);
+
+        long nanos = Math.max(0, latency.toNanos());
+        this.latencies[bucket(nanos)]++;
+        this.latencyCount++;
+        this.latencyMax = Math.max(this.latencyMax, nanos);
+    }
+
+    void retried(int status, int items) {
+        this.retried.addAndGet(items);
+        this.retriedByStatus.computeIfAbsent(status, s -> new AtomicLong()).addAndGet(items);
+    }
+
+    void failed(int status) {
+        this.failedByStatus.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        this.failed.incrementAndGet();
+    }
+
+    void decoded(long nanos) {
+        this.decodeNanos.addAndGet(nanos);
+    }
+
+    private synchronized void inFlight(int delta) {
+        long now = System.nanoTime();
+
+        if (this.inFlight >= this.concurrency) {
+            this.clusterWaitNanos += now - this.lastChange;
+        } else {
+            this.inputWaitNanos += now - this.lastChange;
+        }
+
+        this.inFlight += delta;
+        this.lastChange = now;
+    }
+
+    synchronized void report(RunContext runContext, long records, boolean compress) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - this.start);
+        this.inFlight(0);
+
+        runContext.metric(Counter.of("requests.count", this.requests.get()));
+        runContext.metric(Timer.of("requests.duration", this.took()));
+        runContext.metric(Counter.of("items.retried", this.retried.get()));
+        runContext.metric(Counter.of("items.failed", this.failed.get()));
+        this.retriedByStatus.forEach((status, count) -> runContext.metric(Counter.of("items.retried.status", count.get(), "status", String.valueOf(status))));
+        this.failedByStatus.forEach((status, count) -> runContext.metric(Counter.of("items.failed.status", count.get(), "status", String.valueOf(status))));
+
+        runContext.metric(Counter.of("bytes.uncompressed", this.bytes.get()));
+        runContext.metric(Counter.of("bytes.sent", compress ? this.compressedBytes.get() : this.bytes.get()));
+        if (compress) {
+            runContext.metric(Counter.of("bytes.compressed", this.compressedBytes.get()));
+        }
+
+        if (!elapsed.isZero()) {
+            runContext.metric(Counter.of("records.per.second", records * 1_000_000_000L / elapsed.toNanos()));
+        }
+
+        if (this.latencyCount > 0) {
+            runContext.metric(Timer.of("requests.latency.p50", Duration.ofNanos(this.percentile(50))));
+            runContext.metric(Timer.of("requests.latency.p95", Duration.ofNanos(this.percentile(95))));
+            runContext.metric(Timer.of("requests.latency.p99", Duration.ofNanos(this.percentile(99))));
+            runContext.metric(Timer.of("requests.latency.max", Duration.ofNanos(this.latencyMax)));
+        }
+
+        runContext.metric(Timer.of("wait.cluster.duration", Duration.ofNanos(this.clusterWaitNanos)));
+        runContext.metric(Timer.of("wait.input.duration", Duration.ofNanos(this.inputWaitNanos)));
+        if (this.decodeNanos.get() > 0) {
+            runContext.metric(Timer.of("decode.duration", Duration.ofNanos(this.decodeNanos.get())));
+        }
+    }
+
+    /**
+     * Upper bound of the bucket holding the percentile, capped by the maximum latency.
+     */
+    synchronized long percentile(int percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * this.latencyCount));
+        long seen = 0;
+
+        for (int i = 0; i < this.latencies.length; i++) {
+            seen += this.latencies[i];
+
+            if (seen >= rank) {
+                return Math.min(upperBound(i), this.latencyMax);
+            }
+        }
+
+        return this.latencyMax;
+    }
+
+    /**
+     * Values below 16 have their own bucket; above, the power of two of a value and its next 4 bits select the bucket.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long next = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift;
+
+        // the last bucket ends at Long.MAX_VALUE, whose next value overflows
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
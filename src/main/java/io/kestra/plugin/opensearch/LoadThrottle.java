@@ -0,0 +1,161 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opensearch.client.RestClient;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Paces the bulk requests of a load: token buckets of documents and bytes per second, and an optional pause while
+ * the write thread pool queue of a node is deeper than a threshold.
+ * <p>
+ * Each request reserves its documents and bytes up front; a bucket may go in debt, so requests in flight at once
+ * wait for each other and the average rate never exceeds the limit, while a single request larger than the rate is
+ * still sent.
+ */
+final class LoadThrottle implements AutoCloseable {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+
+    private final Bucket documents;
+    private final Bucket bytes;
+    private final Duration queueInterval;
+    private final Disposable poller;
+    private final AtomicLong waited = new AtomicLong();
+    private volatile boolean saturated;
+
+    /**
+     * @param documentsPerSecond the document rate, or null when unlimited
+     * @param bytesPerSecond the uncompressed body rate, or null when unlimited
+     * @param maxWriteQueue the write queue depth above which requests pause, or null to never poll the nodes
+     */
+    LoadThrottle(Logger logger, RestClient client, Integer documentsPerSecond, Long bytesPerSecond, Integer maxWriteQueue, Duration queueInterval) {
+        this.documents = documentsPerSecond == null ? null : new Bucket(documentsPerSecond);
+        this.bytes = bytesPerSecond == null ? null : new Bucket(bytesPerSecond);
+        this.queueInterval = queueInterval;
+        this.poller = maxWriteQueue == null ? null : Schedulers.boundedElastic().schedulePeriodically(
+            () -> this.poll(logger, client, maxWriteQueue),
+            0,
+            queueInterval.toMillis(),
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Completes once the entries may be sent.
+     */
+    Mono<Void> acquire(List<BulkEntry> entries) {
+        long delay = 0;
+
+        if (this.documents != null) {
+            delay = this.documents.reserve(entries.size());
+        }
+
+        if (this.bytes != null) {
+            delay = Math.max(delay, this.bytes.reserve(entries.stream().mapToLong(BulkEntry::size).sum()));
+        }
+
+        if (delay == 0 && !this.saturated) {
+            return Mono.empty();
+        }
+
+        long start = System.nanoTime();
+
+        return (delay == 0 ? Mono.<Void>empty() : Mono.delay(Duration.ofNanos(delay)).then())
+            .then(this.awaitQueue())
+            .doOnTerminate(() -> this.waited.addAndGet(System.nanoTime() - start));
+    }
+
+    /**
+     * Total time requests were held back.
+     */
+    Duration waited() {
+        return Duration.ofNanos(this.waited.get());
+    }
+
+    @Override
+    public void close() {
+        if (this.poller != null) {
+            this.poller.dispose();
+        }
+    }
+
+    private Mono<Void> awaitQueue() {
+        return Mono.defer(() -> this.saturated ?
+            Mono.delay(this.queueInterval).then(this.awaitQueue()) :
+            Mono.empty()
+        );
+    }
+
+    private void poll(Logger logger, RestClient client, int maxWriteQueue) {
+        try {
+            org.opensearch.client.Request request = new org.opensearch.client.Request("GET", "/_nodes/stats/thread_pool");
+            request.addParameter("filter_path", "nodes.*.thread_pool.write.queue");
+
+            JsonNode nodes;
+            try (InputStream content = client.performRequest(request).getEntity().getContent()) {
+                nodes = MAPPER.readTree(content).path("nodes");
+            }
+
+            int queue = 0;
+            for (JsonNode node : nodes) {
+                queue = Math.max(queue, node.path("thread_pool").path("write").path("queue").asInt());
+            }
+
+            boolean saturated = queue > maxWriteQueue;
+            if (saturated != this.saturated) {
+                if (saturated) {
+                    logger.info("Write queue of {} tasks above {}, pausing bulk requests", queue, maxWriteQueue);
+                } else {
+                    logger.info("Write queue back to {} tasks, resuming bulk requests", queue);
+                }
+            }
+
+            this.saturated = saturated;
+        } catch (Exception e) {
+            // the last known state is kept, a failing poll must not fail the load
+            logger.warn("Unable to read the write queue of the nodes", e);
+        }
+    }
+
+    private static final class Bucket {
+        private final double perNano;
+        private final double capacity;
+        private double tokens;
+        private long updated = System.nanoTime();
+
+        Bucket(long perSecond) {
+            if (perSecond <= 0) {
+                throw new IllegalArgumentException("Throttle rates must be positive, got " + perSecond);
+            }
+
+            this.perNano = perSecond / 1_000_000_000D;
+            this.capacity = perSecond;
+            this.tokens = perSecond;
+        }
+
+        /**
+         * Takes the permits and returns the nanoseconds to wait before using them.
+         */
+        synchronized long reserve(long permits) {
+            long now = System.nanoTime();
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.updated) * this.perNano);
+            this.updated = now;
+            this.tokens -= permits;
+
+            return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.perNano);
+        }
+    }
+}
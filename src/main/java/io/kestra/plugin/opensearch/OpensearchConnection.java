@@ -88,6 +88,14 @@ public class OpensearchConnection {
     @PluginProperty(group = "advanced")
     private Property<Boolean> trustAllSsl;
 
+    @Schema(
+        title = "Compress requests",
+        description = "If true, request bodies are gzip compressed (`Content-Encoding: gzip`) and compressed responses are requested " +
+            "(`Accept-Encoding: gzip`) and decompressed; saves bandwidth on slow links at the cost of some CPU. Defaults to false."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> compressRequests;
+
     @SuperBuilder
     @NoArgsConstructor
     @Getter
@@ -106,6 +114,14 @@ public class OpensearchConnection {
     }
 
     RestClientTransport client(RunContext runContext) throws IllegalVariableEvaluationException {
+        return this.client(runContext, this.compressRequests(runContext));
+    }
+
+    /**
+     * Builds a client, with the request compression of the client itself explicitly enabled or not, for callers
+     * compressing their request bodies on their own.
+     */
+    RestClientTransport client(RunContext runContext, boolean compressionEnabled) throws IllegalVariableEvaluationException {
         RestClientBuilder builder = RestClient
             .builder(this.httpHosts(runContext))
             .setHttpClientConfigCallback(httpClientBuilder ->
@@ -126,9 +142,15 @@ public class OpensearchConnection {
             builder.setStrictDeprecationMode(runContext.render(this.getStrictDeprecationMode()).as(Boolean.class).orElseThrow());
         }
 
+        builder.setCompressionEnabled(compressionEnabled);
+
         return new RestClientTransport(builder.build(), new JacksonJsonpMapper(MAPPER));
     }
 
+    boolean compressRequests(RunContext runContext) throws IllegalVariableEvaluationException {
+        return runContext.render(this.compressRequests).as(Boolean.class).orElse(false);
+    }
+
     @SneakyThrows
     private HttpAsyncClientBuilder httpAsyncClientBuilder(RunContext runContext) {
         HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create();
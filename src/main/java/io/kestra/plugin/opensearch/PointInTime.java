@@ -0,0 +1,102 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * A point in time opened on indices for the duration of an export, deleted on close.
+ * <p>
+ * Unlike a scroll, a point in time only keeps the index segments alive, and any page can be requested again with
+ * the same `search_after` values.
+ */
+final class PointInTime implements AutoCloseable {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+
+    private final Logger logger;
+    private final RestClient client;
+    private final String keepAlive;
+    private volatile String id;
+
+    private PointInTime(Logger logger, RestClient client, String keepAlive, String id) {
+        this.logger = logger;
+        this.client = client;
+        this.keepAlive = keepAlive;
+        this.id = id;
+    }
+
+    static PointInTime open(Logger logger, RestClient client, List<String> indices, String keepAlive, String routing) throws IOException {
+        org.opensearch.client.Request request = new org.opensearch.client.Request(
+            "POST",
+            "/" + (indices.isEmpty() ? "_all" : String.join(",", indices)) + "/_search/point_in_time"
+        );
+        request.addParameter("keep_alive", keepAlive);
+        if (routing != null) {
+            request.addParameter("routing", routing);
+        }
+
+        String id = read(client.performRequest(request)).path("pit_id").asText(null);
+        if (id == null) {
+            throw new IllegalStateException("No point in time id returned for indices " + indices);
+        }
+
+        logger.debug("Opened point in time '{}' on {} with keep alive {}", id, indices, keepAlive);
+
+        return new PointInTime(logger, client, keepAlive, id);
+    }
+
+    /**
+     * Returns the `pit` clause of a search on this point in time.
+     */
+    ObjectNode clause() {
+        ObjectNode pit = MAPPER.createObjectNode();
+        pit.put("id", this.id);
+        pit.put("keep_alive", this.keepAlive);
+
+        return pit;
+    }
+
+    /**
+     * Keeps the id returned by the last search, which may differ from the opened one.
+     */
+    void update(String id) {
+        if (id != null) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Deletes the point in time; a failure is only logged, the server expires it after its keep alive anyway.
+     */
+    @Override
+    public void close() {
+        try {
+            org.opensearch.client.Request request = new org.opensearch.client.Request("DELETE", "/_search/point_in_time");
+            ObjectNode body = MAPPER.createObjectNode();
+            body.putArray("pit_id").add(this.id);
+            request.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+
+            this.client.performRequest(request);
+        } catch (IOException e) {
+            this.logger.warn("Failed to delete point in time", e);
+        }
+    }
+
+    static JsonNode read(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent()) {
+            return MAPPER.readTree(content);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template on top-level record fields, like {@code logs-${record.date | yyyy.MM.dd}}, compiled once per task and
+ * evaluated for each record with plain string concatenation instead of a full template rendering.
+ * <p>
+ * The placeholders use their own syntax, so that they are left untouched when the property is rendered.
+ */
+final class RecordExpression {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{\\s*record\\.([^\\s|}]+)\\s*(?:\\|\\s*([^}]+?)\\s*)?}");
+
+    private final String expression;
+    private final List<Segment> segments;
+    private final Set<String> fields;
+
+    private RecordExpression(String expression, List<Segment> segments, Set<String> fields) {
+        this.expression = expression;
+        this.segments = segments;
+        this.fields = fields;
+    }
+
+    static RecordExpression compile(String expression) {
+        List<Segment> segments = new ArrayList<>();
+        Set<String> fields = new LinkedHashSet<>();
+        Matcher matcher = PLACEHOLDER.matcher(expression);
+        int position = 0;
+
+        while (matcher.find()) {
+            if (matcher.start() > position) {
+                segments.add(new Segment(expression.substring(position, matcher.start()), null, null));
+            }
+
+            DateTimeFormatter formatter;
+            try {
+                formatter = matcher.group(2) == null ? null : DateTimeFormatter.ofPattern(matcher.group(2)).withZone(ZoneOffset.UTC);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid date pattern '" + matcher.group(2) + "' in expression '" + expression + "'", e);
+            }
+
+            segments.add(new Segment(null, matcher.group(1), formatter));
+            fields.add(matcher.group(1));
+            position = matcher.end();
+        }
+
+        if (position < expression.length()) {
+            segments.add(new Segment(expression.substring(position), null, null));
+        }
+
+        return new RecordExpression(expression, segments, fields);
+    }
+
+    /**
+     * The top-level fields to capture while reading a record.
+     */
+    Set<String> fields() {
+        return this.fields;
+    }
+
+    String evaluate(Map<String, String> values) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Segment segment : this.segments) {
+            if (segment.literal() != null) {
+                builder.append(segment.literal());
+                continue;
+            }
+
+            String value = values.get(segment.field());
+            if (value == null) {
+                throw new IllegalArgumentException("Missing field '" + segment.field() + "' to evaluate '" + this.expression + "'");
+            }
+
+            builder.append(segment.formatter() == null ? value : segment.formatter().format(temporal(value)));
+        }
+
+        return builder.toString();
+    }
+
+    private static TemporalAccessor temporal(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        }
+
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            // not a date time with an offset
+        }
+
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            // not a local date time
+        }
+
+        return LocalDate.parse(value);
+    }
+
+    private record Segment(String literal, String field, DateTimeFormatter formatter) {
+    }
+}
@@ -0,0 +1,252 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.opensearch.model.OpType;
+
+import lombok.Builder;
+
+/**
+ * Copies records token by token from an Ion (or JSON) parser into bulk entries, so a record is never materialized
+ * as a map: only its JSON bytes are kept until the chunk is sent.
+ * <p>
+ * For updates, the record is wrapped as a partial document, or passed as the params of a stored script; for deletes,
+ * only the fields needed for the action line are read.
+ */
+final class RecordTranscoder {
+    private static final JsonFactory JSON_FACTORY = JacksonMapper.ofJson(false).getFactory();
+    private static final byte[] DOC_PREFIX = "{\"doc\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DOC_AS_UPSERT_SUFFIX = ",\"doc_as_upsert\":true}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UPSERT_PREFIX = ",\"upsert\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_END = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final String index;
+    private final RecordExpression indexExpression;
+    private final String idKey;
+    private final RecordExpression idExpression;
+    private final boolean removeIdKey;
+    private final OpType opType;
+    private final boolean docAsUpsert;
+    private final byte[] scriptPrefix;
+    private final Set<String> captured = new HashSet<>();
+
+    @Builder
+    RecordTranscoder(
+        String index,
+        RecordExpression indexExpression,
+        String idKey,
+        RecordExpression idExpression,
+        boolean removeIdKey,
+        OpType opType,
+        boolean docAsUpsert,
+        String scriptId
+    ) throws IOException {
+        this.index = index;
+        this.indexExpression = indexExpression;
+        this.idKey = idKey;
+        this.idExpression = idExpression;
+        this.removeIdKey = removeIdKey;
+        this.opType = opType == null ? OpType.INDEX : opType;
+        this.docAsUpsert = docAsUpsert;
+        this.scriptPrefix = scriptId == null ?
+            null :
+            ("{\"script\":{\"id\":" + JacksonMapper.ofJson(false).writeValueAsString(scriptId) + ",\"params\":").getBytes(StandardCharsets.UTF_8);
+
+        if ((this.opType == OpType.UPDATE || this.opType == OpType.DELETE) && idKey == null && idExpression == null) {
+            throw new IllegalArgumentException("`opType` " + this.opType + " requires a document id, from `idKey` or `idExpression`");
+        }
+
+        if (indexExpression != null) {
+            this.captured.addAll(indexExpression.fields());
+        }
+
+        if (idExpression != null) {
+            this.captured.addAll(idExpression.fields());
+        }
+    }
+
+    /**
+     * Transcodes the record the parser is positioned on, leaving the parser on its closing token.
+     */
+    BulkEntry transcode(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid record, expected an object but found '" + parser.currentToken() + "'");
+        }
+
+        ByteArrayOutputStream document = new ByteArrayOutputStream(256);
+        Map<String, String> values = this.captured.isEmpty() ? Map.of() : new HashMap<>();
+        String id = null;
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(document)) {
+            generator.writeStartObject();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                if (this.captured.contains(field)) {
+                    values.put(field, scalar(parser, field));
+                }
+
+                if (field.equals(this.idKey)) {
+                    id = scalar(parser, field);
+
+                    if (this.removeIdKey) {
+                        continue;
+                    }
+                }
+
+                if (this.opType == OpType.DELETE) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                generator.writeFieldName(field);
+                copy(parser, generator);
+            }
+
+            generator.writeEndObject();
+        }
+
+        if (this.idExpression != null) {
+            id = this.idExpression.evaluate(values);
+        }
+
+        if (id == null && (this.opType == OpType.UPDATE || this.opType == OpType.DELETE)) {
+            throw new IllegalArgumentException("Invalid record, " + this.opType + " operations require a document id");
+        }
+
+        return new BulkEntry(
+            this.action(this.indexExpression != null ? this.indexExpression.evaluate(values) : this.index, id),
+            this.body(document)
+        );
+    }
+
+    private byte[] body(ByteArrayOutputStream record) throws IOException {
+        return switch (this.opType) {
+            case INDEX, CREATE -> record.toByteArray();
+            case DELETE -> null;
+            case UPDATE -> {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(record.size() * (this.docAsUpsert && this.scriptPrefix != null ? 2 : 1) + 64);
+
+                if (this.scriptPrefix == null) {
+                    // {"doc": <record>, "doc_as_upsert": true}
+                    body.write(DOC_PREFIX);
+                    record.writeTo(body);
+                    body.write(this.docAsUpsert ? DOC_AS_UPSERT_SUFFIX : OBJECT_END);
+                } else {
+                    // {"script": {"id": <id>, "params": <record>}, "upsert": <record>}
+                    body.write(this.scriptPrefix);
+                    record.writeTo(body);
+                    body.write(OBJECT_END);
+
+                    if (this.docAsUpsert) {
+                        body.write(UPSERT_PREFIX);
+                        record.writeTo(body);
+                    }
+
+                    body.write(OBJECT_END);
+                }
+
+                yield body.toByteArray();
+            }
+        };
+    }
+
+    private byte[] action(String index, String id) throws IOException {
+        ByteArrayOutputStream action = new ByteArrayOutputStream(64);
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(action)) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart(this.opType.action());
+
+            if (index != null) {
+                generator.writeStringField("_index", index);
+            }
+
+            if (id != null) {
+                generator.writeStringField("_id", id);
+            }
+
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+
+        return action.toByteArray();
+    }
+
+    private static String scalar(JsonParser parser, String field) throws IOException {
+        JsonToken token = parser.currentToken();
+
+        if (token.isStructStart()) {
+            throw new IllegalArgumentException("Invalid field '" + field + "', expected a scalar value but found '" + token + "'");
+        }
+
+        return switch (token) {
+            case VALUE_NULL -> null;
+            case VALUE_EMBEDDED_OBJECT -> embeddedText(parser.getEmbeddedObject());
+            default -> parser.getText();
+        };
+    }
+
+    private static void copy(JsonParser parser, JsonGenerator generator) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT -> {
+                generator.writeStartObject();
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    generator.writeFieldName(parser.currentName());
+                    parser.nextToken();
+                    copy(parser, generator);
+                }
+
+                generator.writeEndObject();
+            }
+            case START_ARRAY -> {
+                generator.writeStartArray();
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    copy(parser, generator);
+                }
+
+                generator.writeEndArray();
+            }
+            case VALUE_EMBEDDED_OBJECT -> {
+                Object embedded = parser.getEmbeddedObject();
+
+                if (embedded instanceof byte[] bytes) {
+                    generator.writeBinary(bytes);
+                } else {
+                    generator.writeString(embeddedText(embedded));
+                }
+            }
+            default -> generator.copyCurrentEvent(parser);
+        }
+    }
+
+    /**
+     * Ion timestamps are exposed as embedded objects; their text form is ISO 8601, except that dates with a day (or
+     * coarser) precision end with a 'T' that OpenSearch date formats do not accept.
+     */
+    private static String embeddedText(Object embedded) {
+        if (embedded == null) {
+            return null;
+        }
+
+        String text = embedded.toString();
+
+        return text.endsWith("T") ? text.substring(0, text.length() - 1) : text;
+    }
+}
@@ -2,32 +2,44 @@ package io.kestra.plugin.opensearch;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.file.Files;
 import java.time.Duration;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.opensearch.client.opensearch.OpenSearchClient;
-import org.opensearch.client.opensearch._types.Time;
-import org.opensearch.client.opensearch.core.ClearScrollRequest;
-import org.opensearch.client.opensearch.core.ScrollRequest;
-import org.opensearch.client.opensearch.core.SearchRequest;
-import org.opensearch.client.opensearch.core.SearchResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
+import org.opensearch.client.RestClient;
 import org.opensearch.client.transport.rest_client.RestClientTransport;
 import org.slf4j.Logger;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
 import io.kestra.core.models.executions.metrics.Counter;
 import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.opensearch.model.ScrollMode;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @SuperBuilder
 @ToString
@@ -36,7 +48,7 @@ import reactor.core.publisher.Mono;
 @NoArgsConstructor
 @Schema(
     title = "Scroll and store OpenSearch results",
-    description = "Executes a scroll search with 60s keep-alive and streams all hits to an Internal Storage file; clears the scroll id when finished."
+    description = "Executes a scroll search, or pages over a point in time, and streams all hits to an Internal Storage file; without a request `sort`, hits are read in index order without scoring; clears the scroll id or deletes the point in time when finished. The export can be split into slices read concurrently."
 )
 @Plugin(
     examples = {
@@ -60,86 +72,350 @@ import reactor.core.publisher.Mono;
                           name:
                             value: 'john'
                 """
+        ),
+        @Example(
+            full = true,
+            title = "Export a whole index over a point in time, in 4 concurrent slices.",
+            code = """
+                id: opensearch_scroll_pit
+                namespace: company.team
+
+                tasks:
+                  - id: scroll
+                    type: io.kestra.plugin.opensearch.Scroll
+                    connection:
+                      hosts:
+                        - "http://localhost:9200"
+                    indexes:
+                      - "my_index"
+                    mode: POINT_IN_TIME
+                    slices: 4
+                    pageSize: 5000
+                    keepAlive: PT2M
+                    request:
+                      query:
+                        match_all: {}
+                """
         )
     }
 )
 public class Scroll extends AbstractSearch implements RunnableTask<Scroll.Output> {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final List<String> TIEBREAKERS = List.of("_index", "_id");
+
+    @Schema(
+        title = "Pagination mode",
+        description = "`SCROLL` (default) uses the scroll API. `POINT_IN_TIME` opens a point in time and pages with `search_after`, " +
+            "which is cheaper for the cluster; it requires OpenSearch 2.4 or later. The request `sort` is completed with `_index` " +
+            "and `_id` as tiebreakers so that pages never skip nor repeat a hit, or `_doc` is used first when there is no sort. " +
+            "Sorting on `_id` loads its field data on the data nodes, use `SCROLL` on clusters where `indices.id_field_data.enabled` is false."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<ScrollMode> mode = Property.ofValue(ScrollMode.SCROLL);
+
+    @Schema(
+        title = "Number of slices read concurrently",
+        description = "Above 1, the export is split into sliced scrolls, or sliced searches over one point in time, each read on its own thread " +
+            "into its own file; the files are then concatenated in slice order into the output. Defaults to 1."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Integer> slices = Property.ofValue(1);
+
+    @Schema(
+        title = "Number of hits per page",
+        description = "Overrides the request `size`; defaults to the request `size`, or 1000 when the request has none."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> pageSize;
+
+    @Schema(
+        title = "Keep alive of the scroll or point in time",
+        description = "How long the search context is kept between two pages; defaults to 60 seconds."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> keepAlive = Property.ofValue(Duration.ofSeconds(60));
+
     @Override
     public Output run(RunContext runContext) throws Exception {
         Logger logger = runContext.logger();
         File tempFile = runContext.workingDir().createTempFile(".ion").toFile();
 
+        ScrollMode mode = runContext.render(this.mode).as(ScrollMode.class).orElse(ScrollMode.SCROLL);
+        int slicesRendered = runContext.render(this.slices).as(Integer.class).orElse(1);
+        List<String> indices = runContext.render(this.getIndexes()).asList(String.class);
+        String routing = this.routing == null ? null : runContext.render(this.routing).as(String.class).orElseThrow();
+
+        String keepAliveRendered = runContext.render(this.keepAlive).as(Duration.class).orElseThrow().toMillis() + "ms";
+
+        ObjectNode request = this.requestBody();
+        int pageSizeRendered = runContext.render(this.pageSize).as(Integer.class).orElse(request.path("size").asInt(DEFAULT_PAGE_SIZE));
+        ObjectNode body = exportBody(request, mode, pageSizeRendered);
+
+        logger.info(
+            "Exporting with {} in {} slice(s), {} hits per page, keep alive {}, sort {}",
+            mode,
+            slicesRendered,
+            pageSizeRendered,
+            keepAliveRendered,
+            body.get("sort")
+        );
+        logger.debug("Starting query: {}", body);
+
+        Metrics metrics = new Metrics(new AtomicLong(), new AtomicLong(), new AtomicLong());
+
         try (
             RestClientTransport transport = this.connection.client(runContext);
-            OutputStream output = new BufferedOutputStream(new FileOutputStream(tempFile), FileSerde.BUFFER_SIZE)
+            PointInTime pit = mode == ScrollMode.POINT_IN_TIME ? PointInTime.open(logger, transport.restClient(), indices, keepAliveRendered, routing) : null
         ) {
-            OpenSearchClient client = new OpenSearchClient(transport);
-            // build request
-            SearchRequest.Builder request = this.request(runContext, transport);
+            Slice slice = new Slice(logger, transport.restClient(), pit, indices, routing, keepAliveRendered, metrics);
 
-            request.scroll(new Time.Builder().time("60s").build());
+            if (slicesRendered <= 1) {
+                slice.export(body, tempFile);
+            } else {
+                // each slice reads on its own blocking-friendly worker, files are kept in slice order
+                List<File> files = Flux.range(0, slicesRendered)
+                    .flatMapSequential(
+                        id -> Mono
+                            .fromCallable(() ->
+                            {
+                                ObjectNode sliced = body.deepCopy();
+                                sliced.putObject("slice")
+                                    .put("id", id)
+                                    .put("max", slicesRendered);
 
-            logger.debug("Starting query: {}", request);
+                                File file = runContext.workingDir().createTempFile(".ion").toFile();
+                                slice.export(sliced, file);
 
-            // start scroll
-            AtomicLong recordsCount = new AtomicLong();
-            AtomicLong requestsCount = new AtomicLong();
-            AtomicLong requestsDuration = new AtomicLong();
+                                return file;
+                            })
+                            .subscribeOn(Schedulers.boundedElastic()),
+                        slicesRendered
+                    )
+                    .collectList()
+                    .block();
 
-            String scrollId = null;
+                try (OutputStream output = new FileOutputStream(tempFile)) {
+                    for (File file : files) {
+                        Files.copy(file.toPath(), output);
+                        Files.delete(file.toPath());
+                    }
+                }
+            }
+        }
 
-            try {
-                SearchResponse<Map> searchResponse = client.search(request.build(), Map.class);
-                scrollId = searchResponse.scrollId();
+        // metrics
+        runContext.metric(Counter.of("requests.count", metrics.requests().get()));
+        runContext.metric(Counter.of("records", metrics.records().get()));
+        runContext.metric(Timer.of("requests.duration", Duration.ofMillis(metrics.took().get())));
+
+        // outputs
+        return Output.builder()
+            .size(metrics.records().get())
+            .uri(runContext.storage().putFile(tempFile))
+            .build();
+    }
 
-                do {
-                    requestsDuration.addAndGet(searchResponse.took());
-                    requestsCount.incrementAndGet();
+    /**
+     * Returns the request as sent for each page: with the page size, and without a sort, reading hits in index order
+     * without scoring nor counting them, unless the request asks for it; over a point in time, the sort ends with the
+     * tiebreakers.
+     */
+    static ObjectNode exportBody(ObjectNode request, ScrollMode mode, int pageSize) {
+        ObjectNode body = request.deepCopy();
+        body.put("size", pageSize);
 
-                    Flux<Map> hitFlux = Flux.fromIterable(searchResponse.hits().hits()).map(hit -> hit.source());
-                    Mono<Long> longMono = FileSerde.writeAll(output, hitFlux);
+        if (!body.hasNonNull("sort")) {
+            body.set("sort", MAPPER.createArrayNode().add("_doc"));
+            if (!body.has("track_scores")) {
+                body.put("track_scores", false);
+            }
+            if (!body.has("track_total_hits")) {
+                body.put("track_total_hits", false);
+            }
+        }
 
-                    recordsCount.addAndGet(longMono.block());
+        if (mode == ScrollMode.POINT_IN_TIME) {
+            body.set("sort", sortWithTiebreaker(body.get("sort")));
+        }
 
-                    ScrollRequest searchScrollRequest = new ScrollRequest.Builder()
-                        .scrollId(scrollId)
-                        .scroll(new Time.Builder().time("60s").build())
-                        .build();
+        return body;
+    }
 
-                    searchResponse = client.scroll(searchScrollRequest, Map.class);
-                } while (!searchResponse.hits().hits().isEmpty());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    /**
+     * Returns the sort of the request, as an array, ending with the `_index` and `_id` tiebreakers that make
+     * `search_after` pages total; `_shard_doc`, the cheaper tiebreaker of Elasticsearch, does not exist on OpenSearch 2.x.
+     */
+    static ArrayNode sortWithTiebreaker(JsonNode sort) {
+        ArrayNode sorts = MAPPER.createArrayNode();
+
+        if (sort instanceof ArrayNode array) {
+            sorts.addAll(array);
+        } else if (sort != null && !sort.isNull()) {
+            sorts.add(sort);
+        }
+
+        for (String tiebreaker : TIEBREAKERS) {
+            boolean sorted = false;
+            for (JsonNode field : sorts) {
+                sorted |= tiebreaker.equals(field.asText()) || field.has(tiebreaker);
+            }
+
+            if (!sorted) {
+                sorts.addObject().put(tiebreaker, "asc");
+            }
+        }
+
+        return sorts;
+    }
+
+    private record Metrics(AtomicLong requests, AtomicLong records, AtomicLong took) {
+    }
+
+    /**
+     * Reads all the pages of a search, or of one slice of it, into a file; the next page is always requested before
+     * the current one is written, so at most two raw pages are held at once.
+     */
+    private record Slice(Logger logger, RestClient client, PointInTime pit, List<String> indices, String routing, String keepAlive, Metrics metrics) {
+        void export(ObjectNode body, File file) throws IOException {
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file), FileSerde.BUFFER_SIZE)) {
+                if (this.pit != null) {
+                    this.pointInTime(body, output);
+                } else {
+                    this.scroll(body, output);
+                }
+            }
+        }
+
+        private void pointInTime(ObjectNode body, OutputStream output) throws IOException {
+            int size = body.path("size").asInt(10);
+
+            // the indices are part of the point in time, they cannot be given to the search
+            body.set("pit", this.pit.clause());
+            CompletableFuture<SearchPage> next = this.search(new org.opensearch.client.Request("POST", "/_search"), body);
+
+            while (true) {
+                SearchPage page = await(next);
+                this.pit.update(page.pitId());
+
+                boolean more = page.hits() > 0 && page.hits() >= size;
+
+                // the next page only depends on the last hit, it is requested before this one is written
+                if (more) {
+                    body.set("pit", this.pit.clause());
+                    body.set("search_after", page.lastSort());
+                    next = this.search(new org.opensearch.client.Request("POST", "/_search"), body);
+                }
+
+                this.write(page, output);
+
+                if (!more) {
+                    return;
+                }
+            }
+        }
+
+        private void scroll(ObjectNode body, OutputStream output) throws IOException {
+            org.opensearch.client.Request request = new org.opensearch.client.Request(
+                "POST",
+                this.indices.isEmpty() ? "/_search" : "/" + String.join(",", this.indices) + "/_search"
+            );
+            request.addParameter("scroll", this.keepAlive);
+            if (this.routing != null) {
+                request.addParameter("routing", this.routing);
+            }
+
+            String scrollId = null;
+
+            try {
+                SearchPage page = await(this.search(request, body));
+                scrollId = page.scrollId();
+
+                while (page.hits() > 0) {
+                    ObjectNode scroll = MAPPER.createObjectNode()
+                        .put("scroll", this.keepAlive)
+                        .put("scroll_id", scrollId);
+
+                    // the next page is requested before this one is written
+                    CompletableFuture<SearchPage> next = this.search(new org.opensearch.client.Request("POST", "/_search/scroll"), scroll);
+                    this.write(page, output);
+
+                    page = await(next);
+                    if (page.scrollId() != null) {
+                        scrollId = page.scrollId();
+                    }
+                }
             } finally {
-                this.clearScrollId(logger, client, scrollId);
+                this.clearScroll(scrollId);
             }
+        }
+
+        /**
+         * Sends the search on the http client threads; the body is serialized before returning, so it can be changed
+         * for the following page right away.
+         */
+        private CompletableFuture<SearchPage> search(org.opensearch.client.Request request, ObjectNode body) throws IOException {
+            request.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+
+            Metrics metrics = this.metrics;
+            CompletableFuture<SearchPage> future = new CompletableFuture<>();
+            this.client.performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    try {
+                        SearchPage page = SearchPage.read(response);
+                        metrics.requests().incrementAndGet();
+                        metrics.took().addAndGet(page.took());
 
-            // metrics
-            runContext.metric(Counter.of("requests.count", requestsCount.get()));
-            runContext.metric(Counter.of("records", recordsCount.get()));
-            runContext.metric(Timer.of("requests.duration", Duration.ofNanos(requestsDuration.get())));
+                        future.complete(page);
+                    } catch (IOException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
 
-            // outputs
-            return Output.builder()
-                .size(recordsCount.get())
-                .uri(runContext.storage().putFile(tempFile))
-                .build();
+                @Override
+                public void onFailure(Exception exception) {
+                    future.completeExceptionally(exception);
+                }
+            });
+
+            return future;
         }
-    }
 
-    private void clearScrollId(Logger logger, OpenSearchClient client, String scrollId) {
-        if (scrollId == null) {
-            return;
+        private void write(SearchPage page, OutputStream output) throws IOException {
+            this.metrics.records().addAndGet(page.write(output));
         }
 
-        ClearScrollRequest clearScrollRequest = new ClearScrollRequest.Builder()
-            .scrollId(scrollId)
-            .build();
+        private static SearchPage await(CompletableFuture<SearchPage> future) throws IOException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+
+                throw e;
+            }
+        }
 
-        try {
-            client.clearScroll(clearScrollRequest);
-        } catch (IOException e) {
-            logger.warn("Failed to clear scroll", e);
+        private void clearScroll(String scrollId) {
+            if (scrollId == null) {
+                return;
+            }
+
+            try {
+                org.opensearch.client.Request request = new org.opensearch.client.Request("DELETE", "/_search/scroll");
+                ObjectNode body = MAPPER.createObjectNode();
+                body.putArray("scroll_id").add(scrollId);
+                request.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+
+                this.client.performRequest(request);
+            } catch (IOException e) {
+                this.logger.warn("Failed to clear scroll", e);
+            }
         }
     }
 
@@ -8,12 +8,18 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.opensearch.client.RestClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.transport.rest_client.RestClientTransport;
 import org.slf4j.Logger;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
 import io.kestra.core.models.annotations.PluginProperty;
@@ -24,11 +30,11 @@ import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.models.tasks.common.FetchType;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
-import reactor.core.publisher.Flux;
 
 import static io.kestra.core.utils.Rethrow.throwConsumer;
 
@@ -69,7 +75,8 @@ import static io.kestra.core.utils.Rethrow.throwConsumer;
 public class Search extends AbstractSearch implements RunnableTask<Search.Output> {
     @Schema(
         title = "Result handling strategy",
-        description = "FETCH returns all rows, FETCH_ONE returns the first row, STORE saves rows to Internal Storage, NONE skips output; defaults to FETCH."
+        description = "FETCH returns all rows, FETCH_ONE returns the first row, STORE saves rows to Internal Storage, NONE skips output; defaults to FETCH. " +
+            "STORE transcodes the hits from the response straight into the stored file, without decoding them into rows."
     )
     @Builder.Default
     @PluginProperty(group = "processing")
@@ -80,6 +87,11 @@ public class Search extends AbstractSearch implements RunnableTask<Search.Output
         Logger logger = runContext.logger();
 
         try (RestClientTransport transport = this.connection.client(runContext)) {
+            FetchType fetchTypeRendered = runContext.render(fetchType).as(FetchType.class).orElseThrow();
+            if (fetchTypeRendered == FetchType.STORE) {
+                return this.store(runContext, transport.restClient());
+            }
+
             OpenSearchClient client = new OpenSearchClient(transport);
             // build request
             SearchRequest.Builder request = this.request(runContext, transport);
@@ -89,7 +101,7 @@ public class Search extends AbstractSearch implements RunnableTask<Search.Output
 
             Output.OutputBuilder outputBuilder = Output.builder();
 
-            switch (runContext.render(fetchType).as(FetchType.class).orElseThrow()) {
+            switch (fetchTypeRendered) {
                 case FETCH:
                     Pair<List<Map<String, Object>>, Integer> fetch = this.fetch(searchResponse);
                     outputBuilder
@@ -105,18 +117,14 @@ public class Search extends AbstractSearch implements RunnableTask<Search.Output
                         .size(o != null ? 1 : 0);
                     break;
 
-                case STORE:
-                    Pair<URI, Long> store = this.store(runContext, searchResponse);
-                    outputBuilder
-                        .uri(store.getLeft())
-                        .size(store.getRight().intValue());
+                default:
                     break;
             }
 
             // metrics
             runContext.metric(Counter.of("requests.count", 1));
             runContext.metric(Counter.of("records", searchResponse.hits().hits().size()));
-            runContext.metric(Timer.of("requests.duration", Duration.ofNanos(searchResponse.took())));
+            runContext.metric(Timer.of("requests.duration", Duration.ofMillis(searchResponse.took())));
 
             // outputs
             return outputBuilder
@@ -125,18 +133,40 @@ public class Search extends AbstractSearch implements RunnableTask<Search.Output
         }
     }
 
-    protected Pair<URI, Long> store(RunContext runContext, SearchResponse<Map> searchResponse) throws IOException {
+    protected Output store(RunContext runContext, RestClient client) throws IllegalVariableEvaluationException, IOException {
         File tempFile = runContext.workingDir().createTempFile(".ion").toFile();
 
-        try (var output = new BufferedOutputStream(new FileOutputStream(tempFile), FileSerde.BUFFER_SIZE)) {
-            Flux<Map> hitFlux = Flux.fromIterable(searchResponse.hits().hits()).map(hit -> hit.source());
-            Long count = FileSerde.writeAll(output, hitFlux).block();
+        List<String> indices = runContext.render(this.getIndexes()).asList(String.class);
+        org.opensearch.client.Request request = new org.opensearch.client.Request(
+            "POST",
+            indices.isEmpty() ? "/_search" : "/" + String.join(",", indices) + "/_search"
+        );
+        if (this.routing != null) {
+            request.addParameter("routing", runContext.render(this.routing).as(String.class).orElseThrow());
+        }
+
+        ObjectNode body = this.requestBody();
+        runContext.logger().debug("Starting query: {}", body);
+        request.setEntity(new ByteArrayEntity(JacksonMapper.ofJson(false).writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+
+        SearchPage page = SearchPage.read(client.performRequest(request));
 
-            return Pair.of(
-                runContext.storage().putFile(tempFile),
-                count
-            );
+        long count;
+        try (var output = new BufferedOutputStream(new FileOutputStream(tempFile), FileSerde.BUFFER_SIZE)) {
+            count = page.write(output);
         }
+
+        // metrics
+        runContext.metric(Counter.of("requests.count", 1));
+        runContext.metric(Counter.of("records", count));
+        runContext.metric(Timer.of("requests.duration", Duration.ofMillis(page.took())));
+
+        // outputs
+        return Output.builder()
+            .uri(runContext.storage().putFile(tempFile))
+            .size((int) count)
+            .total(page.total())
+            .build();
     }
 
     protected Pair<List<Map<String, Object>>, Integer> fetch(SearchResponse<Map> searchResponse) {
@@ -0,0 +1,209 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.opensearch.client.Response;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * A page of search hits kept as the raw response body, whose `_source` documents are transcoded token by token into
+ * ION records when written, so that a page never exists as maps on the heap.
+ * <p>
+ * Only the metadata needed to request the next page is read when the page is received, skipping over the documents.
+ */
+final class SearchPage {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+    private static final JsonFactory ION_FACTORY = JacksonMapper.ofIon().getFactory();
+
+    private final byte[] body;
+    private long took;
+    private String scrollId;
+    private String pitId;
+    private Long total;
+    private int hits;
+    private JsonNode lastSort;
+
+    private SearchPage(byte[] body) throws IOException {
+        this.body = body;
+
+        try (JsonParser parser = MAPPER.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+
+                switch (name) {
+                    case "took" -> this.took = parser.getLongValue();
+                    case "_scroll_id" -> this.scrollId = parser.getValueAsString();
+                    case "pit_id" -> this.pitId = parser.getValueAsString();
+                    case "hits" -> this.readHits(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    static SearchPage read(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent()) {
+            return new SearchPage(content.readAllBytes());
+        }
+    }
+
+    long took() {
+        return this.took;
+    }
+
+    String scrollId() {
+        return this.scrollId;
+    }
+
+    String pitId() {
+        return this.pitId;
+    }
+
+    /**
+     * Total hits of the search, or null when they are not tracked.
+     */
+    Long total() {
+        return this.total;
+    }
+
+    int hits() {
+        return this.hits;
+    }
+
+    /**
+     * Sort values of the last hit, to search after it.
+     */
+    JsonNode lastSort() {
+        return this.lastSort;
+    }
+
+    /**
+     * Writes the `_source` of each hit as one ION record per line, or a null record for a hit without one, such as
+     * when the request disables `_source`; returns the number of records written, which is the number of hits.
+     */
+    long write(OutputStream output) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        long count = 0;
+
+        try (JsonParser parser = MAPPER.createParser(this.body)) {
+            if (!toHits(parser)) {
+                return 0;
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                boolean source = false;
+                record.reset();
+
+                try (JsonGenerator generator = ION_FACTORY.createGenerator(record)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.currentName();
+                        parser.nextToken();
+
+                        if ("_source".equals(name)) {
+                            generator.copyCurrentStructure(parser);
+                            source = true;
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+
+                    if (!source) {
+                        generator.writeNull();
+                    }
+                }
+
+                record.writeTo(output);
+                output.write('\n');
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private void readHits(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            if ("total".equals(name) && token == JsonToken.START_OBJECT) {
+                JsonNode total = parser.readValueAsTree();
+                this.total = total.has("value") ? total.get("value").asLong() : null;
+            } else if ("total".equals(name) && token.isNumeric()) {
+                this.total = parser.getLongValue();
+            } else if ("hits".equals(name)) {
+                expect(token, JsonToken.START_ARRAY);
+
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    this.hits++;
+
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+
+                        if ("sort".equals(field)) {
+                            this.lastSort = parser.readValueAsTree();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Moves the parser to the start of the `hits.hits` array, and returns false when there is none.
+     */
+    private static boolean toHits(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+
+            if (!"hits".equals(name)) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+
+                if (parser.nextToken() == JsonToken.START_ARRAY && "hits".equals(field)) {
+                    return true;
+                }
+
+                parser.skipChildren();
+            }
+
+            return false;
+        }
+
+        return false;
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) {
+        if (token != expected) {
+            throw new IllegalStateException("Invalid search response, expected " + expected + " but got " + token);
+        }
+    }
+}
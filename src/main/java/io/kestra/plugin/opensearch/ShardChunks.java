@@ -0,0 +1,54 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills one chunk per target shard, each cut by its own {@link ChunkBoundary}, and returns the chunks as they are full.
+ */
+final class ShardChunks {
+    private final ShardRouter router;
+    private final ChunkSizer sizer;
+    private final long maxBytes;
+    private final Map<String, ShardChunk> chunks = new LinkedHashMap<>();
+
+    ShardChunks(ShardRouter router, ChunkSizer sizer, long maxBytes) {
+        this.router = router;
+        this.sizer = sizer;
+        this.maxBytes = maxBytes;
+    }
+
+    List<List<BulkEntry>> add(BulkEntry entry) throws IOException {
+        ShardChunk chunk = this.chunks.computeIfAbsent(this.router.shard(entry), shard -> new ShardChunk(new ChunkBoundary(this.sizer, this.maxBytes)));
+
+        List<List<BulkEntry>> full = List.of();
+        if (chunk.boundary.test(entry)) {
+            full = List.of(chunk.entries);
+            chunk.entries = new ArrayList<>();
+        }
+
+        chunk.entries.add(entry);
+
+        return full;
+    }
+
+    List<List<BulkEntry>> flush() {
+        return this.chunks.values()
+            .stream()
+            .map(chunk -> chunk.entries)
+            .filter(entries -> !entries.isEmpty())
+            .toList();
+    }
+
+    private static class ShardChunk {
+        private final ChunkBoundary boundary;
+        private List<BulkEntry> entries = new ArrayList<>();
+
+        ShardChunk(ChunkBoundary boundary) {
+            this.boundary = boundary;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.client.ResponseException;
+import org.opensearch.client.RestClient;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Computes the shard a bulk operation is written to, the way OpenSearch routes documents: a murmur3 hash of the
+ * routing, or of the id when there is no routing, scaled to the index routing shards.
+ * <p>
+ * The routing metadata of each index is read once from the cluster state, with a blocking request: the known target
+ * indices are preloaded before the load starts, and the others must only be routed on a thread allowed to block.
+ * Operations whose shard cannot be known (no id, alias over several indices, index not created yet) are not routed.
+ */
+final class ShardRouter {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson(false);
+
+    private final Logger logger;
+    private final RestClient client;
+    private final Map<String, Routing> indices = new HashMap<>();
+
+    ShardRouter(Logger logger, RestClient client) {
+        this.logger = logger;
+        this.client = client;
+    }
+
+    /**
+     * Reads the routing of the indices ahead of the operations targeting them.
+     */
+    void preload(List<String> indices) throws IOException {
+        for (String index : indices) {
+            this.routing(index);
+        }
+    }
+
+    /**
+     * Returns a key identifying the target shard of the entry, or null when it cannot be known.
+     */
+    String shard(BulkEntry entry) throws IOException {
+        BulkEntry.Target target = entry.target();
+        if (target.index() == null || target.id() == null) {
+            return null;
+        }
+
+        Routing metadata = this.routing(target.index());
+        if (metadata == null) {
+            return null;
+        }
+
+        return target.index() + "/" + metadata.shard(target.id(), target.routing());
+    }
+
+    private Routing routing(String index) throws IOException {
+        if (this.indices.containsKey(index)) {
+            return this.indices.get(index);
+        }
+
+        Routing routing = null;
+
+        try {
+            org.opensearch.client.Request request = new org.opensearch.client.Request("GET", "/_cluster/state/metadata/" + index);
+            request.addParameter("flat_settings", "true");
+            request.addParameter("filter_path", "metadata.indices");
+
+            JsonNode indices;
+            try (InputStream content = this.client.performRequest(request).getEntity().getContent()) {
+                indices = MAPPER.readTree(content).path("metadata").path("indices");
+            }
+
+            Iterator<JsonNode> concretes = indices.elements();
+            if (concretes.hasNext()) {
+                JsonNode concrete = concretes.next();
+
+                if (!concretes.hasNext()) {
+                    JsonNode settings = concrete.path("settings");
+
+                    routing = new Routing(
+                        concrete.path("routing_num_shards").asInt(),
+                        settings.path("index.number_of_shards").asInt(),
+                        settings.path("index.routing_partition_size").asInt(1)
+                    );
+                }
+            }
+        } catch (ResponseException e) {
+            this.logger.debug("Unable to read the routing of index '{}', its operations are not grouped by shard", index, e);
+        }
+
+        if (routing == null || routing.routingNumShards() <= 0 || routing.numberOfShards() <= 0) {
+            routing = null;
+            this.logger.info("Operations of index '{}' are not grouped by shard, its routing is unknown", index);
+        }
+
+        this.indices.put(index, routing);
+
+        return routing;
+    }
+
+    private record Routing(int routingNumShards, int numberOfShards, int routingPartitionSize) {
+        int shard(String id, String routing) {
+            int partitionOffset = routing != null && this.routingPartitionSize > 1 ?
+                Math.floorMod(hash(id), this.routingPartitionSize) :
+                0;
+
+            int hash = hash(routing != null ? routing : id) + partitionOffset;
+
+            return Math.floorMod(hash, this.routingNumShards) / (this.routingNumShards / this.numberOfShards);
+        }
+    }
+
+    /**
+     * Murmur3 x86 32 bits hash, with a 0 seed, of the UTF-16 little endian code units of the value, as hashed by OpenSearch.
+     */
+    static int hash(String value) {
+        byte[] data = new byte[value.length() * 2];
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            data[i * 2] = (byte) c;
+            data[i * 2 + 1] = (byte) (c >>> 8);
+        }
+
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+
+        int h1 = 0;
+        int roundedEnd = data.length & 0xfffffffc;
+
+        for (int i = 0; i < roundedEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+
+        // the length is always even, only 2 bytes can remain
+        if ((data.length & 0x03) == 2) {
+            int k1 = ((data[roundedEnd + 1] & 0xff) << 8) | (data[roundedEnd] & 0xff);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+            h1 ^= k1;
+        }
+
+        h1 ^= data.length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+
+        return h1;
+    }
+}
@@ -0,0 +1,47 @@
+package io.kestra.plugin.opensearch;
+
+import java.time.Duration;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+public class Throttle {
+    @Schema(
+        title = "Maximum documents per second",
+        description = "Counts every operation sent, retries included. Unlimited by default."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> documentsPerSecond;
+
+    @Schema(
+        title = "Maximum bytes per second",
+        description = "Uncompressed size of the bulk request bodies sent, retries included. Unlimited by default."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Long> bytesPerSecond;
+
+    @Schema(
+        title = "Maximum write queue depth",
+        description = "When set, the `write` thread pool queue of every node is polled every `writeQueueInterval`, " +
+            "and no new bulk request is sent while one of them holds more tasks than this. Unset by default."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxWriteQueue;
+
+    @Schema(
+        title = "Write queue polling interval",
+        description = "Defaults to 5 seconds."
+    )
+    @Builder.Default
+    @PluginProperty(group = "execution")
+    private Property<Duration> writeQueueInterval = Property.ofValue(Duration.ofSeconds(5));
+}
@@ -13,4 +13,16 @@ public enum OpType {
             case UPDATE, DELETE -> throw new IllegalArgumentException("Only INDEX and CREATE are supported");
         };
     }
+
+    /**
+     * Name of the bulk API action for this operation type.
+     */
+    public String action() {
+        return switch (this) {
+            case INDEX -> "index";
+            case CREATE -> "create";
+            case UPDATE -> "update";
+            case DELETE -> "delete";
+        };
+    }
 }
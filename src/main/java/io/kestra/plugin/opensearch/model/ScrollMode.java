@@ -0,0 +1,6 @@
+package io.kestra.plugin.opensearch.model;
+
+public enum ScrollMode {
+    SCROLL,
+    POINT_IN_TIME
+}
@@ -1,17 +1,25 @@
 package io.kestra.plugin.opensearch;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StringReader;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
 
 import org.junit.jupiter.api.Test;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.transport.rest_client.RestClientTransport;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
@@ -22,13 +30,19 @@ import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.tenant.TenantService;
 import io.kestra.core.utils.IdUtils;
+import io.kestra.plugin.opensearch.model.ErrorMode;
 
 import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 
 import static io.kestra.core.utils.Rethrow.throwConsumer;
+import static io.kestra.core.utils.Rethrow.throwFunction;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class BulkTest {
@@ -88,6 +102,142 @@ class BulkTest {
         assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(5D));
     }
 
+    @Test
+    void runDocuments() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String json = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        String ion = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        List<Map<String, Object>> data = DATA.apply(ion);
+
+        assertThat(this.bulk(TestUtils.lines(storageInterface, json(DATA.apply(json)))).build().run(runContext).getSize(), is(5L));
+        assertThat(this.bulk(TestUtils.records(storageInterface, data.size(), data::get)).build().run(runContext).getSize(), is(5L));
+
+        // both formats leave the same documents
+        this.assertData(runContext, json);
+        this.assertData(runContext, ion);
+    }
+
+    @Test
+    void runBoundedBuffer() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, index(indice, 5000, "{ \"name\" : \"john\" }")))
+            .chunk(Property.ofValue(10))
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(5000L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("operations.buffered.max")).findFirst().orElseThrow().getValue(), lessThan(500D));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(5000));
+        }
+    }
+
+    @Test
+    void runCompressed() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, index(indice, 1000, "{ \"name\" : \"john\", \"message\" : \"the same log line over and over again\" }")))
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).compressRequests(Property.ofValue(true)).build())
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(1000L));
+        Double uncompressed = runContext.metrics().stream().filter(e -> e.getName().equals("bytes.uncompressed")).findFirst().orElseThrow().getValue();
+        Double compressed = runContext.metrics().stream().filter(e -> e.getName().equals("bytes.compressed")).findFirst().orElseThrow().getValue();
+        assertThat(compressed, lessThan(uncompressed));
+
+        // the cluster decompressed the body into the same documents
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(1000));
+            assertThat(
+                TestUtils.document(transport.restClient(), indice, "999").get("_source"),
+                is(Map.of("name", "john", "message", "the same log line over and over again"))
+            );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void runErrorModeContinue() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, List.of(
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"age\" : 1 }",
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"2\" } }",
+                "{ \"age\" : \"not a number\" }",
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"3\" } }",
+                "{ \"age\" : 3 }"
+            )))
+            .chunk(Property.ofValue(1))
+            .errorMode(Property.ofValue(ErrorMode.CONTINUE))
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(3L));
+        assertThat(runOutput.getFailed(), is(1L));
+
+        InputStream inputStream = new BufferedInputStream(storageInterface.get(TenantService.MAIN_TENANT, null, runOutput.getDeadLetter()));
+        List<Map<String, Object>> deadLetters = new ArrayList<>();
+        FileSerde.read(inputStream, r -> deadLetters.add((Map<String, Object>) r));
+
+        assertThat(deadLetters.size(), is(1));
+        assertThat(deadLetters.getFirst().get("id"), is("2"));
+        assertThat(deadLetters.getFirst().get("status"), is(400));
+
+        // the operation after the failed one is still applied
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(2));
+            assertThat(TestUtils.document(transport.restClient(), indice, "2").get("found"), is(false));
+            assertThat(TestUtils.document(transport.restClient(), indice, "3").get("_source"), is(Map.of("age", 3)));
+        }
+    }
+
+    @Test
+    void runDeduplicate() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, List.of(
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"version\" : 1 }",
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"2\" } }",
+                "{ \"version\" : 1 }",
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"version\" : 2 }",
+                "{ \"delete\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"2\" } }",
+                "{ \"update\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"doc\" : { \"name\" : \"john\" } }"
+            )))
+            .passthrough(Property.ofValue(true))
+            .deduplicate(Property.ofValue(true))
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(5L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("operations.deduplicated")).findFirst().orElseThrow().getValue(), is(2D));
+
+        // only the last index of each document is sent, the update still applies on top of it
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            RestClient client = transport.restClient();
+            Map<String, Object> document = TestUtils.document(client, indice, "1");
+
+            assertThat(document.get("_source"), is(Map.of("version", 2, "name", "john")));
+            assertThat(document.get("_version"), is(2));
+            assertThat(TestUtils.document(client, indice, "2").get("found"), is(false));
+            assertThat(TestUtils.count(client, indice, null), is(1));
+        }
+    }
+
     @Test
     void runIon() throws Exception {
         RunContext runContext = runContextFactory.of();
@@ -114,4 +264,136 @@ class BulkTest {
         assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(1D));
         assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(5D));
     }
+
+    @Test
+    void runMaxChunkBytes() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, json(DATA.apply(indice))))
+            .chunk(Property.ofValue(10))
+            .maxChunkBytes(Property.ofValue(1L))
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(5L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(5D));
+
+        // one operation per request, still applied in the file order
+        this.assertData(runContext, indice);
+    }
+
+    @Test
+    void runPassthrough() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        // lines are sent as they are, so the update after the delete has to ask for an upsert itself
+        Bulk put = this.bulk(TestUtils.lines(storageInterface, List.of(
+                "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"field1\" : \"value1\" }",
+                "{ \"delete\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"create\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"3\" } }",
+                "{ \"field1\" : \"value3\" }",
+                "{ \"update\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+                "{ \"doc\" : { \"field2\" : \"value2\" }, \"doc_as_upsert\" : true }",
+                "{ \"create\" : { \"_index\" : \"" + indice + "\" } }",
+                "{ \"field1\" : \"value4\" }"
+            )))
+            .chunk(Property.ofValue(10))
+            .passthrough(Property.ofValue(true))
+            .build();
+
+        Bulk.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(5L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(1D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(5D));
+
+        this.assertData(runContext, indice);
+
+        // the update body is applied as written, its doc becomes the upserted document
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.document(transport.restClient(), indice, "1").get("_source"), is(Map.of("field2", "value2")));
+        }
+    }
+
+    @Test
+    void runMissingSource() throws Exception {
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.lines(storageInterface, List.of(
+            "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"1\" } }",
+            "{ \"field1\" : \"value1\" }",
+            "{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"2\" } }"
+        ));
+
+        // the truncated last operation is reported whatever the way the file is read
+        for (boolean passthrough : List.of(false, true)) {
+            for (int decodeThreads : List.of(1, 2)) {
+                Bulk put = this.bulk(uri)
+                    .passthrough(Property.ofValue(passthrough))
+                    .decodeThreads(Property.ofValue(decodeThreads))
+                    .build();
+
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> put.run(runContextFactory.of()));
+                assertThat(e.getMessage(), is("Bulk action at line 3 has no source line"));
+            }
+        }
+    }
+
+    @Test
+    void fileReader() throws Exception {
+        String lines = String.join("\n", json(DATA.apply("ut_reader"))) + "\n";
+
+        // the public reader still pushes the whole file into a sink
+        List<BulkOperation> operations = Flux
+            .create(new Bulk().fileReader(new BufferedReader(new StringReader(lines))), FluxSink.OverflowStrategy.BUFFER)
+            .collectList()
+            .block();
+
+        assertThat(operations.stream().map(operation -> operation._kind().jsonValue()).toList(), is(List.of("index", "delete", "create", "update", "create")));
+    }
+
+    private OpensearchConnection connection() {
+        return OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build();
+    }
+
+    private Bulk.BulkBuilder<?, ?> bulk(URI uri) {
+        return Bulk.builder()
+            .connection(this.connection())
+            .from(Property.ofValue(uri.toString()));
+    }
+
+    /**
+     * Checks the documents left by the {@link #DATA} operations: the created ones, not the deleted one.
+     */
+    private void assertData(RunContext runContext, String indice) throws Exception {
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            RestClient client = transport.restClient();
+
+            assertThat(TestUtils.document(client, indice, "3").get("_source"), is(Map.of("field1", "value3")));
+            assertThat(TestUtils.count(client, indice, "{\"term\": {\"field1.keyword\": \"value4\"}}"), is(1));
+            assertThat(TestUtils.count(client, indice, "{\"term\": {\"field1.keyword\": \"value1\"}}"), is(0));
+        }
+    }
+
+    private static List<String> json(List<Map<String, Object>> data) throws Exception {
+        return data.stream()
+            .map(throwFunction(JacksonMapper.ofJson()::writeValueAsString))
+            .toList();
+    }
+
+    /**
+     * Bulk lines indexing the same source under the ids from 0 to count.
+     */
+    private static List<String> index(String indice, int count, String source) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("{ \"index\" : { \"_index\" : \"" + indice + "\", \"_id\" : \"" + i + "\" } }");
+            lines.add(source);
+        }
+
+        return lines;
+    }
 }
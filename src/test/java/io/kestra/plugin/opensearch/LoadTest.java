@@ -1,31 +1,58 @@
 package io.kestra.plugin.opensearch;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.Test;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.transport.rest_client.RestClientTransport;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableMap;
 
 import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.executions.TaskRun;
+import io.kestra.core.models.flows.Flow;
+import io.kestra.core.models.flows.State;
 import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.Task;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
 import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.tenant.TenantService;
 import io.kestra.core.utils.IdUtils;
+import io.kestra.plugin.opensearch.model.ErrorMode;
+import io.kestra.plugin.opensearch.model.OpType;
 
 import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
 
+import static io.kestra.core.utils.Rethrow.throwConsumer;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class LoadTest {
@@ -70,4 +97,688 @@ class LoadTest {
         assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(10D));
         assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(100D));
     }
+
+    @Test
+    void runDocuments() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 100, i -> Map.of("id", i, "name", "john"));
+
+        Load put = this.load(indice, uri)
+            .chunk(Property.ofValue(10))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(100L));
+        // the sequential source is timed as well, not only the decoding threads
+        assertThat(((Duration) runContext.metrics().stream().filter(e -> e.getName().equals("decode.duration")).findFirst().orElseThrow().getValue()).toNanos(), is(greaterThan(0L)));
+
+        // the id key is removed from the indexed documents
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(100));
+            assertThat(TestUtils.document(transport.restClient(), indice, "42").get("_source"), is(Map.of("name", "john")));
+        }
+    }
+
+    @Test
+    void runConcurrent() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 1000, i -> Map.of("id", i, "name", "john"));
+
+        Load put = this.load(indice, uri)
+            .chunk(Property.ofValue(10))
+            .concurrency(Property.ofValue(4))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(1000L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(100D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(1000D));
+        assertThat(runContext.metrics().stream().anyMatch(e -> e.getName().equals("requests.latency.p99")), is(true));
+        assertThat(runContext.metrics().stream().anyMatch(e -> e.getName().equals("wait.cluster.duration")), is(true));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("bytes.sent")).findFirst().orElseThrow().getValue(), is(greaterThan(0D)));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.failed")).findFirst().orElseThrow().getValue(), is(0D));
+
+        // every id is indexed exactly once, whatever the order the requests completed in
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(1000));
+            assertThat(TestUtils.document(transport.restClient(), indice, "999").get("_version"), is(1));
+        }
+    }
+
+    @Test
+    void latencyPercentiles() {
+        RunContext runContext = runContextFactory.of();
+        LoadMetrics metrics = new LoadMetrics(1);
+
+        // 1 to 100 000 microseconds, kept in a fixed number of buckets
+        for (int i = 1; i <= 100_000; i++) {
+            metrics.responded(Duration.ofNanos(i * 1000L), 0);
+        }
+
+        metrics.report(runContext, 0, false);
+
+        for (int percentile : List.of(50, 95, 99)) {
+            long exact = percentile * 1000 * 1000L;
+            long reported = ((Duration) runContext.metrics().stream().filter(e -> e.getName().equals("requests.latency.p" + percentile)).findFirst().orElseThrow().getValue()).toNanos();
+
+            assertThat(reported, is(greaterThanOrEqualTo(exact)));
+            assertThat(reported, is(lessThanOrEqualTo(exact + exact / 16)));
+        }
+
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.latency.max")).findFirst().orElseThrow().getValue(), is(Duration.ofMillis(100)));
+    }
+
+    @Test
+    void latencyBuckets() {
+        // below 16 every value has its own bucket
+        for (int i = 0; i < 16; i++) {
+            assertThat(LoadMetrics.bucket(i), is(i));
+            assertThat(LoadMetrics.upperBound(i), is((long) i));
+        }
+
+        // above, each bucket follows the previous one and is at most 1/16 of its values wide
+        assertThat(LoadMetrics.bucket(32), is(32));
+        assertThat(LoadMetrics.bucket(33), is(32));
+        assertThat(LoadMetrics.upperBound(32), is(33L));
+        for (int bucket = 16; bucket < LoadMetrics.bucket(Long.MAX_VALUE); bucket++) {
+            long upperBound = LoadMetrics.upperBound(bucket);
+
+            assertThat(LoadMetrics.bucket(upperBound), is(bucket));
+            assertThat(LoadMetrics.bucket(upperBound + 1), is(bucket + 1));
+            assertThat(upperBound - LoadMetrics.upperBound(bucket - 1), is(lessThanOrEqualTo(upperBound / 16 + 1)));
+        }
+
+        // the last bucket ends at Long.MAX_VALUE, the next value overflowing
+        assertThat(LoadMetrics.bucket(Long.MAX_VALUE), is(959));
+        assertThat(LoadMetrics.bucket(Long.MAX_VALUE - 1), is(959));
+        assertThat(LoadMetrics.upperBound(959), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    void latencyPercentile() {
+        LoadMetrics metrics = new LoadMetrics(1);
+        assertThat(metrics.percentile(50), is(0L));
+
+        for (int i = 1; i <= 100; i++) {
+            metrics.responded(Duration.ofNanos(i), 0);
+        }
+
+        // the upper bound of the bucket holding 50, [50, 51], and the maximum rather than the bound of its bucket
+        assertThat(metrics.percentile(50), is(51L));
+        assertThat(metrics.percentile(100), is(100L));
+
+        metrics.responded(Duration.ofNanos(Long.MAX_VALUE), 0);
+        assertThat(metrics.percentile(50), is(51L));
+        assertThat(metrics.percentile(100), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    void runItemRetries() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI uri = TestUtils.records(storageInterface, 10, i -> Map.of("id", i, "name", "john"));
+
+        // even ids are rejected twice by a full write queue before being accepted
+        Map<String, Integer> rejections = new ConcurrentHashMap<>();
+        try (StubServer server = new StubServer(exchange -> bulkReply(
+            exchange,
+            id -> Integer.parseInt(id) % 2 == 0 && rejections.merge(id, 1, Integer::sum) <= 2
+        ))) {
+            Load put = this.load("stub", uri)
+                .connection(OpensearchConnection.builder().hosts(Property.ofValue(List.of(server.host()))).build())
+                .chunk(Property.ofValue(10))
+                .maxItemRetries(Property.ofValue(3))
+                .itemRetryBackoff(Property.ofValue(Duration.ofMillis(200)))
+                .itemRetryMaxBackoff(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            Load.Output runOutput = put.run(runContext);
+
+            assertThat(runOutput.getSize(), is(10L));
+
+            // only the rejected items are sent again
+            List<StubServer.Exchange> exchanges = server.exchanges();
+            assertThat(exchanges.stream().map(exchange -> bulkIds(exchange.body())).toList(), is(List.of(
+                List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"),
+                List.of("0", "2", "4", "6", "8"),
+                List.of("0", "2", "4", "6", "8")
+            )));
+
+            // the backoff doubles between attempts
+            assertThat(Duration.ofNanos(exchanges.get(1).nanos() - exchanges.get(0).nanos()).toMillis(), is(greaterThanOrEqualTo(200L)));
+            assertThat(Duration.ofNanos(exchanges.get(2).nanos() - exchanges.get(1).nanos()).toMillis(), is(greaterThanOrEqualTo(400L)));
+        }
+
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.retried")).findFirst().orElseThrow().getValue(), is(10D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.retried.status") && "429".equals(e.getTags().get("status"))).findFirst().orElseThrow().getValue(), is(10D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.failed")).findFirst().orElseThrow().getValue(), is(0D));
+    }
+
+    @Test
+    void runItemRetriesExhausted() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI uri = TestUtils.records(storageInterface, 10, i -> Map.of("id", i, "name", "john"));
+
+        try (StubServer server = new StubServer(exchange -> bulkReply(exchange, id -> id.equals("3")))) {
+            Load put = this.load("stub", uri)
+                .connection(OpensearchConnection.builder().hosts(Property.ofValue(List.of(server.host()))).build())
+                .chunk(Property.ofValue(10))
+                .maxItemRetries(Property.ofValue(2))
+                .itemRetryBackoff(Property.ofValue(Duration.ofMillis(10)))
+                .build();
+
+            assertThrows(RuntimeException.class, () -> put.run(runContext));
+
+            assertThat(server.exchanges().stream().map(exchange -> bulkIds(exchange.body())).toList(), is(List.of(
+                List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"),
+                List.of("3"),
+                List.of("3")
+            )));
+        }
+
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.retried")).findFirst().orElseThrow().getValue(), is(2D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.failed")).findFirst().orElseThrow().getValue(), is(1D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("items.failed.status") && "429".equals(e.getTags().get("status"))).findFirst().orElseThrow().getValue(), is(1D));
+    }
+
+    @Test
+    void runDecodeThreads() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 5000, i -> Map.of("id", i, "name", "john"));
+
+        Load put = this.load(indice, uri)
+            .decodeThreads(Property.ofValue(4))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(5000L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(5D));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(5000));
+            assertThat(TestUtils.document(transport.restClient(), indice, "4999").get("_source"), is(Map.of("name", "john")));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void runIonTypes() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        List<String> records = List.of(
+            "{id: \"1\", day: 2024-01-15T, at: 2024-01-15T10:20:30Z, amount: 12.50, ratio: 2.5e0, bin: {{aGVsbG8=}}, " +
+                "nested: {values: [1, 2], items: [{name: \"a\", at: 2024-01-15T}, {name: \"b\", tags: [\"x\", \"y\"]}], none: null}}",
+            "{id: \"2\", day: 2024-02-29T, at: 2024-02-29T23:59:59.123+02:00, amount: -0.001, ratio: 1e-3, bin: {{}}, " +
+                "nested: {values: [], items: [], none: null}}"
+        );
+        URI uri = TestUtils.lines(storageInterface, records);
+
+        Load.Output runOutput = this.load(indice, uri).build().run(runContext);
+
+        assertThat(runOutput.getSize(), is(2L));
+
+        // the documents the records were indexed as before the transcoder: read as maps, serialized by the client mapper
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        FileSerde.read(
+            new ByteArrayInputStream(String.join("\n", records).getBytes(StandardCharsets.UTF_8)),
+            throwConsumer(record ->
+            {
+                Map<String, Object> values = new HashMap<>((Map<String, Object>) record);
+                String id = (String) values.remove("id");
+                expected.put(id, JacksonMapper.ofJson().readValue(JacksonMapper.ofJson(false).writeValueAsString(values), JacksonMapper.MAP_TYPE_REFERENCE));
+            })
+        );
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            Map<String, Object> first = (Map<String, Object>) TestUtils.document(transport.restClient(), indice, "1").get("_source");
+            Map<String, Object> second = (Map<String, Object>) TestUtils.document(transport.restClient(), indice, "2").get("_source");
+
+            assertThat(first, is(expected.get("1")));
+            assertThat(second, is(expected.get("2")));
+
+            // day precision timestamps lose the trailing 'T' of their Ion text, binaries are base64 encoded
+            assertThat(first.get("day"), is("2024-01-15"));
+            assertThat(((Map<String, Object>) ((List<Object>) ((Map<String, Object>) first.get("nested")).get("items")).getFirst()).get("at"), is("2024-01-15"));
+            assertThat(first.get("bin"), is("aGVsbG8="));
+            assertThat(second.get("bin"), is(""));
+        }
+    }
+
+    @Test
+    void runFiles() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        List<String> uris = new ArrayList<>();
+        for (int file = 0; file < 3; file++) {
+            int current = file;
+            uris.add(TestUtils.records(storageInterface, 100, i -> Map.of("id", current + "_" + i, "name", "john")).toString());
+        }
+
+        Load put = Load.builder()
+            .connection(this.connection())
+            .index(Property.ofValue(indice))
+            .fromFiles(Property.ofValue(uris))
+            .idKey(Property.ofValue("id"))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(300L));
+        assertThat(runOutput.getFiles().size(), is(3));
+        assertThat(runOutput.getFiles().get(uris.get(1)), is(100L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("files")).findFirst().orElseThrow().getValue(), is(3D));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(300));
+            for (int file = 0; file < 3; file++) {
+                assertThat(TestUtils.document(transport.restClient(), indice, file + "_99").get("found"), is(true));
+            }
+        }
+
+        Load both = this.load(indice, URI.create(uris.getFirst()))
+            .fromFiles(Property.ofValue(uris))
+            .build();
+
+        assertThrows(IllegalArgumentException.class, () -> both.run(runContextFactory.of()));
+    }
+
+    @Test
+    void runBulkIngest() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 100, i -> Map.of("id", i, "name", "john"));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            org.opensearch.client.Request create = new org.opensearch.client.Request("PUT", "/" + indice);
+            create.setJsonEntity("{\"settings\": {\"index.refresh_interval\": \"5s\"}}");
+            transport.restClient().performRequest(create);
+        }
+
+        Load put = this.load(indice, uri)
+            .bulkIngest(BulkIngest.builder().forceMerge(Property.ofValue(true)).maxNumSegments(Property.ofValue(1)).build())
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(100L));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            org.opensearch.client.Request settings = new org.opensearch.client.Request("GET", "/" + indice + "/_settings");
+            settings.addParameter("flat_settings", "true");
+            Map<String, Object> response = TestUtils.read(transport.restClient().performRequest(settings));
+
+            assertThat(((Map<?, ?>) ((Map<?, ?>) response.get(indice)).get("settings")).get("index.refresh_interval"), is("5s"));
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(100));
+        }
+    }
+
+    @Test
+    void runCheckpoint() throws Exception {
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 100, i -> Map.of("id", i, "age", i == 55 ? "not a number" : i));
+
+        Load.LoadBuilder<?, ?> builder = this.load(indice, uri)
+            .id("load")
+            .type(Load.class.getName())
+            .chunk(Property.ofValue(10))
+            .checkpoint(Property.ofValue(true));
+
+        // the chunk with the bad record fails the load, after the first 50 records are acknowledged
+        Load failing = builder.build();
+        assertThrows(RuntimeException.class, () -> failing.run(this.runContext(failing, "first")));
+
+        // another execution loading the same file does not resume from the checkpoint of the first one
+        RunContext other = this.runContext(failing, "second");
+        assertThrows(RuntimeException.class, () -> failing.run(other));
+        assertThat(other.metrics().stream().filter(e -> e.getName().equals("records.skipped")).findFirst().orElseThrow().getValue(), is(0D));
+
+        // a retry within the same execution does
+        Load resumed = builder.errorMode(Property.ofValue(ErrorMode.CONTINUE)).build();
+        RunContext runContext = this.runContext(resumed, "second");
+        Load.Output runOutput = resumed.run(runContext);
+
+        assertThat(runOutput.getSize(), is(50L));
+        assertThat(runOutput.getFailed(), is(1L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records.skipped")).findFirst().orElseThrow().getValue(), is(50D));
+
+        // the acknowledged records are not sent again, the failed chunk is
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            RestClient client = transport.restClient();
+
+            assertThat(TestUtils.count(client, indice, null), is(99));
+            assertThat(TestUtils.document(client, indice, "49").get("_version"), is(2));
+            assertThat(TestUtils.document(client, indice, "50").get("_version"), is(3));
+            assertThat(TestUtils.document(client, indice, "55").get("found"), is(false));
+            assertThat(TestUtils.document(client, indice, "60").get("_version"), is(1));
+            assertThat(TestUtils.document(client, indice, "99").get("found"), is(true));
+        }
+    }
+
+    @Test
+    void runShardGrouping() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 300, i -> Map.of("id", i, "name", "john"));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            org.opensearch.client.Request create = new org.opensearch.client.Request("PUT", "/" + indice);
+            create.setJsonEntity("{\"settings\": {\"index.number_of_shards\": 3}}");
+            transport.restClient().performRequest(create);
+
+            // the computed shards must be the ones OpenSearch routes the ids to
+            ShardRouter router = new ShardRouter(runContext.logger(), transport.restClient());
+            for (int i = 0; i < 10; i++) {
+                org.opensearch.client.Request searchShards = new org.opensearch.client.Request("GET", "/" + indice + "/_search_shards");
+                searchShards.addParameter("routing", String.valueOf(i));
+                Map<String, Object> response = TestUtils.read(transport.restClient().performRequest(searchShards));
+                Object shard = ((Map<?, ?>) ((List<?>) ((List<?>) response.get("shards")).getFirst()).getFirst()).get("shard");
+
+                BulkEntry entry = new BulkEntry(("{\"index\":{\"_index\":\"" + indice + "\",\"_id\":\"" + i + "\"}}").getBytes(), new byte[0]);
+                assertThat(router.shard(entry), is(indice + "/" + shard));
+            }
+        }
+
+        Load put = this.load(indice, uri)
+            .chunk(Property.ofValue(50))
+            .shardGrouping(Property.ofValue(true))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(300L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(lessThanOrEqualTo(9D)));
+
+        // grouping only changes which request carries a document, each one is still found by its id
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(300));
+            for (int i = 0; i < 300; i += 37) {
+                assertThat(TestUtils.document(transport.restClient(), indice, String.valueOf(i)).get("_source"), is(Map.of("name", "john")));
+            }
+        }
+    }
+
+    @Test
+    void runUpdateAndDelete() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 10, i -> Map.of("id", i, "name", "john"));
+        URI aged = TestUtils.records(storageInterface, 5, i -> Map.of("id", i, "age", i));
+
+        Load upsert = this.load(indice, uri)
+            .opType(Property.ofValue(OpType.UPDATE))
+            .build();
+
+        assertThat(upsert.run(runContext).getSize(), is(10L));
+
+        Load update = this.load(indice, aged)
+            .opType(Property.ofValue(OpType.UPDATE))
+            .build();
+
+        assertThat(update.run(runContext).getSize(), is(5L));
+
+        // the second load merges its fields into the upserted documents
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            Map<String, Object> document = TestUtils.document(transport.restClient(), indice, "3");
+
+            assertThat(document.get("_source"), is(Map.of("name", "john", "age", 3)));
+            assertThat(document.get("_version"), is(2));
+            assertThat(TestUtils.document(transport.restClient(), indice, "7").get("_source"), is(Map.of("name", "john")));
+        }
+
+        Load delete = this.load(indice, uri)
+            .opType(Property.ofValue(OpType.DELETE))
+            .build();
+
+        assertThat(delete.run(runContext).getSize(), is(10L));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(0));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void runPartitions() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        // each document is written 10 times, the last version must win
+        URI uri = TestUtils.records(storageInterface, 1000, i -> Map.of("id", i % 100, "version", i));
+
+        Load put = this.load(indice, uri)
+            .chunk(Property.ofValue(10))
+            .partitions(Property.ofValue(4))
+            .build();
+
+        assertThat(put.run(runContext).getSize(), is(1000L));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            List<Map<String, Object>> hits = TestUtils.search(transport.restClient(), indice, "{\"size\": 100, \"version\": true}");
+
+            assertThat(hits.size(), is(100));
+            for (Map<String, Object> hit : hits) {
+                Map<String, Object> source = (Map<String, Object>) hit.get("_source");
+
+                assertThat(source.get("version"), is(900 + Integer.parseInt((String) hit.get("_id"))));
+                assertThat(hit.get("_version"), is(10));
+            }
+        }
+    }
+
+    @Test
+    void runAdaptiveChunk() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI uri = TestUtils.records(storageInterface, 200, i -> Map.of("id", i, "name", "john"));
+
+        // two requests slower than the target, then one rejected as a whole, then only fast ones
+        AtomicInteger received = new AtomicInteger();
+        try (StubServer server = new StubServer(exchange ->
+        {
+            int request = received.incrementAndGet();
+            if (request <= 2) {
+                Thread.sleep(300);
+            } else if (request == 3) {
+                return new StubServer.Reply(429, "{\"error\": \"rejected\", \"status\": 429}");
+            }
+
+            return bulkReply(exchange, id -> false);
+        })) {
+            Load put = this.load("stub", uri)
+                .connection(OpensearchConnection.builder().hosts(Property.ofValue(List.of(server.host()))).build())
+                .adaptiveChunk(AdaptiveChunk.builder()
+                    .initial(Property.ofValue(20))
+                    .min(Property.ofValue(5))
+                    .max(Property.ofValue(40))
+                    .targetLatency(Property.ofValue(Duration.ofMillis(200)))
+                    .build()
+                )
+                .itemRetryBackoff(Property.ofValue(Duration.ofMillis(10)))
+                .build();
+
+            Load.Output runOutput = put.run(runContext);
+
+            assertThat(runOutput.getSize(), is(200L));
+
+            // halved twice down to the minimum, kept there by the rejection, then grown by 20 up to the maximum;
+            // the rejected chunk is sent again as it was
+            List<Integer> sizes = server.exchanges().stream().map(exchange -> bulkIds(exchange.body()).size()).toList();
+            assertThat(sizes.subList(0, 6), is(List.of(20, 10, 5, 5, 25, 40)));
+            assertThat(sizes.stream().mapToInt(Integer::intValue).max().orElseThrow(), is(40));
+            assertThat(sizes.subList(4, sizes.size()).stream().mapToInt(Integer::intValue).sum(), is(200 - 35));
+        }
+
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("chunk.size.min")).findFirst().orElseThrow().getValue(), is(5D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("chunk.size.max")).findFirst().orElseThrow().getValue(), is(40D));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("chunk.size.final")).findFirst().orElseThrow().getValue(), is(40D));
+    }
+
+    @Test
+    void runThrottle() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        URI uri = TestUtils.records(storageInterface, 1000, i -> Map.of("id", i, "name", "john"));
+
+        Load put = this.load(indice, uri)
+            .chunk(Property.ofValue(100))
+            .throttle(Throttle.builder()
+                .documentsPerSecond(Property.ofValue(500))
+                .maxWriteQueue(Property.ofValue(1000))
+                .build()
+            )
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(1000L));
+        // the bucket starts with one second of documents, the other 500 wait for about a second
+        Duration waited = (Duration) runContext.metrics().stream().filter(e -> e.getName().equals("throttle.duration")).findFirst().orElseThrow().getValue();
+        assertThat(waited.toMillis(), is(greaterThan(500L)));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            assertThat(TestUtils.count(transport.restClient(), indice, null), is(1000));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void runExpressions() throws Exception {
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+        RunContext runContext = runContextFactory.of(Map.of("prefix", indice));
+        URI uri = TestUtils.records(storageInterface, 100, i -> Map.of("id", i, "name", "john", "date", "2024-0" + (i % 2 + 1) + "-15T10:00:00Z"));
+
+        // the Pebble expression is rendered once, the record placeholders are evaluated for each record
+        Load put = Load.builder()
+            .connection(this.connection())
+            .index(Property.ofExpression("{{ prefix }}-${record.date | yyyy.MM}"))
+            .idExpression(Property.ofValue("${record.name}-${record.id}"))
+            .from(Property.ofValue(uri.toString()))
+            .chunk(Property.ofValue(10))
+            .build();
+
+        Load.Output runOutput = put.run(runContext);
+
+        assertThat(runOutput.getSize(), is(100L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(100D));
+
+        try (RestClientTransport transport = this.connection().client(runContext)) {
+            List<Map<String, Object>> hits = TestUtils.search(transport.restClient(), indice + "-*", "{\"size\": 100}");
+
+            assertThat(hits.size(), is(100));
+            for (Map<String, Object> hit : hits) {
+                int id = (Integer) ((Map<String, Object>) hit.get("_source")).get("id");
+
+                assertThat(hit.get("_index"), is(indice + "-2024.0" + (id % 2 + 1)));
+                assertThat(hit.get("_id"), is("john-" + id));
+            }
+
+            assertThat(TestUtils.count(transport.restClient(), indice + "-2024.01", null), is(50));
+            assertThat(TestUtils.count(transport.restClient(), indice + "-2024.02", null), is(50));
+        }
+    }
+
+    /**
+     * A run context of the task within the given execution, as each attempt of the task in that execution gets.
+     */
+    private RunContext runContext(Task task, String executionId) {
+        Flow flow = Flow.builder()
+            .id("load_checkpoint")
+            .namespace("io.kestra.plugin.opensearch")
+            .tenantId(TenantService.MAIN_TENANT)
+            .revision(1)
+            .tasks(List.of(task))
+            .build();
+        Execution execution = Execution.builder()
+            .id(executionId)
+            .tenantId(TenantService.MAIN_TENANT)
+            .namespace(flow.getNamespace())
+            .flowId(flow.getId())
+            .state(new State())
+            .build();
+        TaskRun taskRun = TaskRun.builder()
+            .id(IdUtils.create())
+            .tenantId(TenantService.MAIN_TENANT)
+            .executionId(executionId)
+            .namespace(flow.getNamespace())
+            .flowId(flow.getId())
+            .taskId(task.getId())
+            .state(new State())
+            .build();
+
+        return runContextFactory.of(flow, task, execution, taskRun);
+    }
+
+    private OpensearchConnection connection() {
+        return OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build();
+    }
+
+    /**
+     * A load of the file into the index, with the `id` field of the records as document id.
+     */
+    private Load.LoadBuilder<?, ?> load(String indice, URI uri) {
+        return Load.builder()
+            .connection(this.connection())
+            .index(Property.ofValue(indice))
+            .from(Property.ofValue(uri.toString()))
+            .idKey(Property.ofValue("id"));
+    }
+
+    /**
+     * Ids of the operations of a bulk body of action and source lines.
+     */
+    private static List<String> bulkIds(String body) {
+        List<String> lines = body.lines().toList();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i += 2) {
+            ids.add(action(lines.get(i)).path("_id").asText());
+        }
+
+        return ids;
+    }
+
+    /**
+     * A bulk response rejecting with a 429 the items whose id matches, and creating the others.
+     */
+    private static StubServer.Reply bulkReply(StubServer.Exchange exchange, Predicate<String> rejected) {
+        ObjectNode response = JacksonMapper.ofJson().createObjectNode();
+        response.put("took", 1);
+        ArrayNode items = response.putArray("items");
+        boolean errors = false;
+
+        List<String> lines = exchange.body().lines().toList();
+        for (int i = 0; i < lines.size(); i += 2) {
+            String id = action(lines.get(i)).path("_id").asText();
+            ObjectNode item = items.addObject().putObject("index");
+            item.put("_index", "stub");
+            item.put("_id", id);
+
+            if (rejected.test(id)) {
+                errors = true;
+                item.put("status", 429);
+                item.putObject("error")
+                    .put("type", "es_rejected_execution_exception")
+                    .put("reason", "rejected execution of coordinating operation");
+            } else {
+                item.put("status", 201);
+                item.put("result", "created");
+            }
+        }
+
+        response.put("errors", errors);
+
+        return new StubServer.Reply(200, response.toString());
+    }
+
+    private static JsonNode action(String line) {
+        try {
+            return JacksonMapper.ofJson().readTree(line).elements().next();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid bulk action " + line, e);
+        }
+    }
 }
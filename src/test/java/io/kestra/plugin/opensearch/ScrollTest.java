@@ -1,22 +1,35 @@
 package io.kestra.plugin.opensearch;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.opensearch.client.transport.rest_client.RestClientTransport;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.core.storages.StorageInterface;
+import io.kestra.plugin.opensearch.model.ScrollMode;
 
 import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class ScrollTest {
@@ -75,4 +88,276 @@ class ScrollTest {
 
         assertThat(run.getSize(), is(900L));
     }
+
+    @Test
+    void runPointInTime() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .mode(Property.ofValue(ScrollMode.POINT_IN_TIME))
+            .request("""
+                {
+                    "size": 100,
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(900L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(10D));
+        assertThat(keys(run).size(), is(900));
+    }
+
+    @Test
+    void runPointInTimeSorted() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        // most hits share the same sort value, only the tiebreakers keep the pages from skipping or repeating them
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .mode(Property.ofValue(ScrollMode.POINT_IN_TIME))
+            .request("""
+                {
+                    "size": 100,
+                    "sort": [{"basisOfRecord.keyword": "asc"}],
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(900L));
+        assertThat(keys(run).size(), is(900));
+    }
+
+    @Test
+    void runSlices() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .mode(Property.ofValue(ScrollMode.POINT_IN_TIME))
+            .slices(Property.ofValue(3))
+            .request("""
+                {
+                    "size": 100,
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(900L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(900D));
+        assertThat(keys(run).size(), is(900));
+    }
+
+    @Test
+    void runScrollSlices() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .mode(Property.ofValue(ScrollMode.SCROLL))
+            .slices(Property.ofValue(3))
+            .request("""
+                {
+                    "size": 100,
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(900L));
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("records")).findFirst().orElseThrow().getValue(), is(900D));
+        assertThat(keys(run).size(), is(900));
+    }
+
+    @Test
+    void runPageSize() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .pageSize(Property.ofValue(50))
+            .keepAlive(Property.ofValue(Duration.ofSeconds(30)))
+            .request("""
+                {
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(900L));
+        // 18 full pages, then an empty one
+        assertThat(runContext.metrics().stream().filter(e -> e.getName().equals("requests.count")).findFirst().orElseThrow().getValue(), is(19D));
+    }
+
+    @Test
+    void runSortedPages() throws Exception {
+        List<Object> expected;
+        try (RestClientTransport transport = OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build().client(runContextFactory.of())) {
+            expected = TestUtils.search(transport.restClient(), "gbif", "{\"size\": 900, \"sort\": [{\"key\": \"asc\"}]}").stream()
+                .map(hit -> ((Map<?, ?>) hit.get("_source")).get("key"))
+                .toList();
+        }
+
+        // pages are written in order while the next one is prefetched, without duplicates or gaps between them
+        for (ScrollMode mode : ScrollMode.values()) {
+            RunContext runContext = runContextFactory.of();
+
+            Scroll task = Scroll.builder()
+                .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+                .indexes(Property.ofValue(Collections.singletonList("gbif")))
+                .mode(Property.ofValue(mode))
+                .pageSize(Property.ofValue(50))
+                .request("""
+                    {
+                        "sort": [{"key": "asc"}],
+                        "query": {
+                            "match_all": {}
+                        }
+                    }""")
+                .build();
+
+            Scroll.Output run = task.run(runContext);
+
+            assertThat(TestUtils.rows(storageInterface, run.getUri()).stream().map(row -> row.get("key")).toList(), is(expected));
+        }
+    }
+
+    @Test
+    void runWithoutSource() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        Scroll task = Scroll.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList("gbif")))
+            .request("""
+                {
+                    "_source": false,
+                    "query": {
+                        "match_all": {}
+                    }
+                }""")
+            .build();
+
+        Scroll.Output run = task.run(runContext);
+
+        // each hit is still a record, a null one
+        assertThat(run.getSize(), is(900L));
+        assertThat(TestUtils.rows(storageInterface, run.getUri()).size(), is(900));
+        assertThat(TestUtils.rows(storageInterface, run.getUri()), everyItem(nullValue()));
+    }
+
+    @Test
+    void runFailedPrefetch() throws Exception {
+        // the first page is returned, the request of the second one fails
+        try (StubServer server = new StubServer(exchange -> switch (exchange.method() + " " + exchange.path()) {
+            case "POST /gbif/_search" -> new StubServer.Reply(200, page("\"_scroll_id\": \"scroll-1\""));
+            case "POST /gbif/_search/point_in_time" -> new StubServer.Reply(200, "{\"pit_id\": \"pit-1\"}");
+            case "POST /_search" -> exchange.body().contains("search_after") ?
+                new StubServer.Reply(500, "{\"error\": \"unavailable\"}") :
+                new StubServer.Reply(200, page("\"pit_id\": \"pit-1\""));
+            case "DELETE /_search/scroll", "DELETE /_search/point_in_time" -> new StubServer.Reply(200, "{\"succeeded\": true}");
+            default -> new StubServer.Reply(500, "{\"error\": \"unavailable\"}");
+        })) {
+            for (ScrollMode mode : ScrollMode.values()) {
+                Scroll task = Scroll.builder()
+                    .connection(OpensearchConnection.builder().hosts(Property.ofValue(List.of(server.host()))).build())
+                    .indexes(Property.ofValue(Collections.singletonList("gbif")))
+                    .mode(Property.ofValue(mode))
+                    .pageSize(Property.ofValue(2))
+                    .request("""
+                        {
+                            "query": {
+                                "match_all": {}
+                            }
+                        }""")
+                    .build();
+
+                assertThrows(Exception.class, () -> task.run(runContextFactory.of()));
+            }
+
+            // the scroll and the point in time are released anyway
+            List<String> released = server.exchanges().stream()
+                .filter(exchange -> exchange.method().equals("DELETE"))
+                .map(exchange -> exchange.path() + " " + exchange.body().replaceAll("\\s", ""))
+                .toList();
+
+            assertThat(released, hasItem("/_search/scroll {\"scroll_id\":[\"scroll-1\"]}"));
+            assertThat(released, hasItem("/_search/point_in_time {\"pit_id\":[\"pit-1\"]}"));
+        }
+    }
+
+    @Test
+    void exportBody() throws Exception {
+        ObjectNode unsorted = (ObjectNode) JacksonMapper.ofJson().readTree("""
+            {"size": 10, "query": {"match_all": {}}}""");
+
+        // without a sort, hits are read in index order without scoring nor counting them
+        assertThat(Scroll.exportBody(unsorted, ScrollMode.SCROLL, 50), is(JacksonMapper.ofJson().readTree("""
+            {"size": 50, "query": {"match_all": {}}, "sort": ["_doc"], "track_scores": false, "track_total_hits": false}""")));
+        assertThat(Scroll.exportBody(unsorted, ScrollMode.POINT_IN_TIME, 50).get("sort"), is(JacksonMapper.ofJson().readTree("""
+            ["_doc", {"_index": "asc"}, {"_id": "asc"}]""")));
+
+        // the sort and tracking asked by the request are kept
+        ObjectNode sorted = (ObjectNode) JacksonMapper.ofJson().readTree("""
+            {"sort": [{"key": "desc"}], "track_total_hits": true, "query": {"match_all": {}}}""");
+
+        assertThat(Scroll.exportBody(sorted, ScrollMode.SCROLL, 50), is(JacksonMapper.ofJson().readTree("""
+            {"sort": [{"key": "desc"}], "track_total_hits": true, "query": {"match_all": {}}, "size": 50}""")));
+        assertThat(Scroll.exportBody(sorted, ScrollMode.POINT_IN_TIME, 50).get("sort"), is(JacksonMapper.ofJson().readTree("""
+            [{"key": "desc"}, {"_index": "asc"}, {"_id": "asc"}]""")));
+
+        ObjectNode tracked = (ObjectNode) JacksonMapper.ofJson().readTree("""
+            {"track_scores": true, "track_total_hits": 1000}""");
+
+        assertThat(Scroll.exportBody(tracked, ScrollMode.SCROLL, 50).get("track_scores").asBoolean(), is(true));
+        assertThat(Scroll.exportBody(tracked, ScrollMode.SCROLL, 50).get("track_total_hits").asInt(), is(1000));
+
+        // a tiebreaker already in the sort is not added again, and the request itself is left untouched
+        assertThat(Scroll.sortWithTiebreaker(JacksonMapper.ofJson().readTree("""
+            [{"_id": "desc"}]""")), is(JacksonMapper.ofJson().readTree("""
+            [{"_id": "desc"}, {"_index": "asc"}]""")));
+        assertThat(unsorted.has("sort"), is(false));
+    }
+
+    /**
+     * The distinct gbif keys of the exported hits.
+     */
+    private Set<Object> keys(Scroll.Output run) throws Exception {
+        return TestUtils.rows(storageInterface, run.getUri()).stream()
+            .map(row -> row.get("key"))
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * A full page of 2 hits, with the given search context id.
+     */
+    private static String page(String context) {
+        return "{\"took\": 1, " + context + ", \"hits\": {\"hits\": [" +
+            "{\"_index\": \"gbif\", \"_id\": \"1\", \"_source\": {\"key\": 1}, \"sort\": [1]}, " +
+            "{\"_index\": \"gbif\", \"_id\": \"2\", \"_source\": {\"key\": 2}, \"sort\": [2]}" +
+            "]}}";
+    }
 }
@@ -4,10 +4,12 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.opensearch.client.transport.rest_client.RestClientTransport;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
@@ -17,13 +19,16 @@ import io.kestra.core.runners.RunContextFactory;
 import io.kestra.core.serializers.FileSerde;
 import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.IdUtils;
 
 import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 @KestraTest
 class SearchTest {
@@ -123,4 +128,73 @@ class SearchTest {
 
         assertThat(result.get(8).get("key"), is(925311404));
     }
+
+    @Test
+    void runStoredContent() throws Exception {
+        String indice = "ut_" + IdUtils.create().toLowerCase(Locale.ROOT);
+
+        try (RestClientTransport transport = OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build().client(runContextFactory.of())) {
+            // only the sort field is mapped, the other values are kept as sent in the source
+            org.opensearch.client.Request create = new org.opensearch.client.Request("PUT", "/" + indice);
+            create.setJsonEntity("{\"mappings\": {\"dynamic\": false, \"properties\": {\"rank\": {\"type\": \"integer\"}}}}");
+            transport.restClient().performRequest(create);
+
+            org.opensearch.client.Request bulk = new org.opensearch.client.Request("POST", "/" + indice + "/_bulk");
+            bulk.addParameter("refresh", "true");
+            bulk.setJsonEntity("""
+                {"index": {"_id": "1"}}
+                {"rank": 1, "int": 42, "long": 9007199254740993, "big": 123456789012345678901234567890, "double": 3.14159, "negative": -0.5, "exponent": 1.5e300, "flag": true, "empty": null}
+                {"index": {"_id": "2"}}
+                {"rank": 2, "name": "Zo\\u00eb \\u00e9t\\u00e9 \\ud83d\\ude00", "tags": ["a", "b", 3, null], "nested": {"level": {"deep": [{"value": 1}, {"value": 2.5}]}, "empty": {}}}
+                {"index": {"_id": "3"}}
+                {"rank": 3, "matrix": [[1, 2], [3, 4]], "text": "line\\nbreak \\"quoted\\""}
+                """);
+            transport.restClient().performRequest(bulk);
+        }
+
+        String request = """
+            {
+                "sort": [{"rank": "asc"}]
+            }""";
+
+        Search fetch = Search.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList(indice)))
+            .request(request)
+            .fetchType(Property.ofValue(FetchType.FETCH))
+            .build();
+
+        Search store = Search.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList(indice)))
+            .request(request)
+            .fetchType(Property.ofValue(FetchType.STORE))
+            .build();
+
+        // the stored file reads back as the fetched documents serialized with FileSerde, as before streaming the hits
+        List<Map<String, Object>> fetched = fetch.run(runContextFactory.of()).getRows();
+        List<Map<String, Object>> expected = TestUtils.rows(storageInterface, TestUtils.records(storageInterface, fetched.size(), fetched::get));
+
+        Search.Output stored = store.run(runContextFactory.of());
+
+        assertThat(stored.getSize(), is(3));
+        assertThat(TestUtils.rows(storageInterface, stored.getUri()), is(expected));
+
+        // a hit without source is still a record, a null one
+        Search withoutSource = Search.builder()
+            .connection(OpensearchConnection.builder().hosts(Property.ofValue(hosts)).build())
+            .indexes(Property.ofValue(Collections.singletonList(indice)))
+            .request("""
+                {
+                    "_source": false
+                }""")
+            .fetchType(Property.ofValue(FetchType.STORE))
+            .build();
+
+        Search.Output run = withoutSource.run(runContextFactory.of());
+
+        assertThat(run.getSize(), is(3));
+        assertThat(TestUtils.rows(storageInterface, run.getUri()).size(), is(3));
+        assertThat(TestUtils.rows(storageInterface, run.getUri()), everyItem(nullValue()));
+    }
 }
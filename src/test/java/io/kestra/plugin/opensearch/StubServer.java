@@ -0,0 +1,80 @@
+package io.kestra.plugin.opensearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server answering in place of a cluster, to test how the tasks react to responses a real cluster only
+ * returns under load, and recording the requests it received.
+ */
+final class StubServer implements AutoCloseable {
+    private final HttpServer server;
+    private final List<Exchange> exchanges = new CopyOnWriteArrayList<>();
+
+    StubServer(Handler handler) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", http ->
+        {
+            try (InputStream input = http.getRequestBody()) {
+                Exchange exchange = new Exchange(
+                    http.getRequestMethod(),
+                    http.getRequestURI().getPath(),
+                    new String(input.readAllBytes(), StandardCharsets.UTF_8),
+                    System.nanoTime()
+                );
+                this.exchanges.add(exchange);
+
+                Reply reply = handler.handle(exchange);
+                byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+
+                http.getResponseHeaders().add("Content-Type", "application/json");
+                http.sendResponseHeaders(reply.status(), body.length);
+                try (OutputStream output = http.getResponseBody()) {
+                    output.write(body);
+                }
+            } catch (Exception e) {
+                http.sendResponseHeaders(500, -1);
+            } finally {
+                http.close();
+            }
+        });
+        this.server.start();
+    }
+
+    /**
+     * The host to set on the connection.
+     */
+    String host() {
+        return "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    /**
+     * The requests received so far, in the order they arrived.
+     */
+    List<Exchange> exchanges() {
+        return this.exchanges;
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+    }
+
+    record Exchange(String method, String path, String body, long nanos) {
+    }
+
+    record Reply(int status, String body) {
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        Reply handle(Exchange exchange) throws Exception;
+    }
+}
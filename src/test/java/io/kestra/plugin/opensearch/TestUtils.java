@@ -1,9 +1,20 @@
 package io.kestra.plugin.opensearch;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
 
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.opensearch.client.RestClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.indices.ExistsRequest;
 import org.opensearch.client.transport.endpoints.BooleanResponse;
@@ -11,6 +22,8 @@ import org.opensearch.client.transport.endpoints.BooleanResponse;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.tenant.TenantService;
 import io.kestra.core.utils.IdUtils;
@@ -45,4 +58,89 @@ final class TestUtils {
             }
         }
     }
+
+    /**
+     * Stores an ION file of the records returned for each index from 0 to count.
+     */
+    static URI records(StorageInterface storageInterface, int count, IntFunction<Map<String, Object>> record) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            FileSerde.write(output, record.apply(i));
+        }
+
+        return storageInterface.put(TenantService.MAIN_TENANT, null, URI.create("/" + IdUtils.create() + ".ion"), new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    /**
+     * Stores a file of the given lines, such as a bulk request body.
+     */
+    static URI lines(StorageInterface storageInterface, List<String> lines) throws IOException {
+        String content = String.join("\n", lines) + "\n";
+
+        return storageInterface.put(TenantService.MAIN_TENANT, null, URI.create("/" + IdUtils.create() + ".ion"), new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Refreshes the index and returns the number of documents matching the query, or all of them when null.
+     */
+    static int count(RestClient client, String index, String query) throws IOException {
+        client.performRequest(new org.opensearch.client.Request("POST", "/" + index + "/_refresh"));
+
+        org.opensearch.client.Request count = new org.opensearch.client.Request("GET", "/" + index + "/_count");
+        if (query != null) {
+            count.setJsonEntity("{\"query\": " + query + "}");
+        }
+
+        return (Integer) read(client.performRequest(count)).get("count");
+    }
+
+    /**
+     * Returns the stored document with its metadata, `found` being false when it does not exist.
+     */
+    static Map<String, Object> document(RestClient client, String index, String id) throws IOException {
+        org.opensearch.client.Request get = new org.opensearch.client.Request("GET", "/" + index + "/_doc/" + id);
+        get.addParameter("realtime", "true");
+
+        try {
+            return read(client.performRequest(get));
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() != 404) {
+                throw e;
+            }
+
+            return read(e.getResponse());
+        }
+    }
+
+    /**
+     * Refreshes the index and returns the hits of the search, with their metadata.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> search(RestClient client, String index, String body) throws IOException {
+        client.performRequest(new org.opensearch.client.Request("POST", "/" + index + "/_refresh"));
+
+        org.opensearch.client.Request search = new org.opensearch.client.Request("GET", "/" + index + "/_search");
+        search.setJsonEntity(body);
+
+        return (List<Map<String, Object>>) ((Map<String, Object>) read(client.performRequest(search)).get("hits")).get("hits");
+    }
+
+    /**
+     * Reads back the records of an ION file from the storage, null records included.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> rows(StorageInterface storageInterface, URI uri) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (InputStream input = new BufferedInputStream(storageInterface.get(TenantService.MAIN_TENANT, null, uri))) {
+            FileSerde.read(input, row -> rows.add((Map<String, Object>) row));
+        }
+
+        return rows;
+    }
+
+    static Map<String, Object> read(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent()) {
+            return JacksonMapper.ofJson().readValue(content, JacksonMapper.MAP_TYPE_REFERENCE);
+        }
+    }
 }